@@ -0,0 +1,200 @@
+package com.ddhj.benchmark;
+
+import com.ddhj.DdhjApplication;
+import com.ddhj.entity.Category;
+import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItem;
+import com.ddhj.entity.Product;
+import com.ddhj.entity.Specification;
+import com.ddhj.mapper.CategoryMapper;
+import com.ddhj.mapper.ProductMapper;
+import com.ddhj.mapper.SpecificationMapper;
+import com.ddhj.service.OrderItemService;
+import com.ddhj.service.OrderService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基准测试用的 Spring 上下文与数据集
+ * <p>
+ * 使用内存 H2（MySQL 模式）启动应用，按 schema.sql 建表并生成指定规模的商品、规格和订单。
+ */
+public class BenchmarkContext implements AutoCloseable {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final ConfigurableApplicationContext context;
+
+    private final String url;
+
+    private final BenchmarkData data = new BenchmarkData();
+
+    public BenchmarkContext() {
+        this(null);
+    }
+
+    /**
+     * @param url  数据库地址，为 null 时使用新建的内存 H2 库；指定其他库时需已导入 schema.sql
+     * @param args 追加的启动参数，如 --spring.main.web-application-type=servlet
+     */
+    public BenchmarkContext(String url, String... args) {
+        if (url == null) {
+            url = memoryUrl("ddhj" + SEQUENCE.incrementAndGet());
+            createSchema(url);
+        }
+        this.url = url;
+        List<String> arguments = new ArrayList<>(List.of(args));
+        arguments.add("--spring.datasource.url=" + url);
+        context = new SpringApplicationBuilder(DdhjApplication.class)
+                .profiles("benchmark")
+                .run(arguments.toArray(new String[0]));
+    }
+
+    /**
+     * 内存 H2 库的连接地址
+     */
+    public static String memoryUrl(String name) {
+        return "jdbc:h2:mem:" + name
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * 把当前库的表结构和数据复制到另一个内存 H2 库，用于本地模拟从库；之后的写入不会同步过去
+     */
+    public void copyTo(String replicaUrl) {
+        try (Connection source = DriverManager.getConnection(url, "sa", "");
+             Connection target = DriverManager.getConnection(replicaUrl, "sa", "");
+             Statement read = source.createStatement();
+             Statement write = target.createStatement()) {
+            Path script = Files.createTempFile("ddhj-replica", ".sql");
+            try {
+                read.execute("SCRIPT TO '" + script + "'");
+                write.execute("RUNSCRIPT FROM '" + script + "'");
+            } finally {
+                Files.deleteIfExists(script);
+            }
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException("复制 H2 数据失败", e);
+        }
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public BenchmarkContext populate(int products, int orders, int days) {
+        return populate(1, products, orders, days);
+    }
+
+    /**
+     * 生成数据集
+     *
+     * @param categories 分类数，商品依次分配到各分类
+     * @param products   商品数，每个商品 3 个规格
+     * @param orders     订单数，下单时间均匀分布在最近 days 天
+     */
+    public BenchmarkContext populate(int categories, int products, int orders, int days) {
+        CategoryMapper categoryMapper = getBean(CategoryMapper.class);
+        ProductMapper productMapper = getBean(ProductMapper.class);
+        SpecificationMapper specificationMapper = getBean(SpecificationMapper.class);
+
+        List<Long> categoryIds = new ArrayList<>();
+        for (int i = 0; i < Math.max(categories, 1); i++) {
+            Category category = new Category();
+            category.setName("分类" + i);
+            category.setSortOrder(i);
+            categoryMapper.insert(category);
+            categoryIds.add(category.getId());
+            data.addCategory(category.getId());
+        }
+
+        for (int i = 0; i < products; i++) {
+            Product product = new Product();
+            product.setName("商品" + i);
+            product.setCategoryId(categoryIds.get(i % categoryIds.size()));
+            product.setImages(List.of("image/" + i + ".jpg"));
+            product.setPurchasePrice(10.0);
+            product.setSellPrice(20.0 + i % 50);
+            productMapper.insert(product);
+
+            List<Long> specIds = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                Specification spec = new Specification();
+                spec.setProductId(product.getId());
+                spec.setName("规格" + j);
+                spec.setSpecs(Map.of("尺寸", String.valueOf(j)));
+                spec.setStock(Integer.MAX_VALUE / 2);
+                specificationMapper.insert(spec);
+                specIds.add(spec.getId());
+            }
+            data.addProduct(product.getId(), specIds);
+        }
+
+        OrderService orderService = getBean(OrderService.class);
+        OrderItemService orderItemService = getBean(OrderItemService.class);
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> batch = new ArrayList<>();
+        List<List<OrderItem>> batchItems = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            Order order = data.randomOrder(3);
+            order.setOrderDate(now.minusSeconds(data.getRandom().nextInt(Math.max(days, 1) * 86400)));
+            orderService.fillDefaults(order);
+            batch.add(order);
+            batchItems.add(orderItemService.parseItems(order));
+            if (batch.size() == 500 || i == orders - 1) {
+                orderService.createOrders(batch, batchItems);
+                batch = new ArrayList<>();
+                batchItems = new ArrayList<>();
+            }
+        }
+        return this;
+    }
+
+    public BenchmarkData getData() {
+        return data;
+    }
+
+    /**
+     * 应用启动前按 schema.sql 建表：跳过建库语句，JSON 列在 H2 中按文本存储，
+     * 索引名在 H2 中全库唯一，因此去掉普通索引的名称；H2 不支持的分区和行格式定义也一并去掉
+     */
+    private static void createSchema(String url) {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            String script = StreamUtils.copyToString(new ClassPathResource("schema.sql").getInputStream(), StandardCharsets.UTF_8);
+            for (String sql : script.replaceAll("(?m)^\\s*--.*$", "").split(";")) {
+                sql = sql.trim();
+                if (sql.isEmpty() || sql.startsWith("CREATE DATABASE") || sql.startsWith("USE ")) {
+                    continue;
+                }
+                statement.execute(sql.replaceAll("\\bJSON\\b", "TEXT")
+                        .replaceAll("\\bINDEX `\\w+` \\(", "INDEX (")
+                        .replaceAll("(?s)\\s*PARTITION BY .*$", "")
+                        .replaceAll("\\s*ROW_FORMAT=\\w+", ""));
+            }
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException("初始化 H2 表结构失败", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
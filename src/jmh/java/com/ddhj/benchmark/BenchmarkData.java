@@ -0,0 +1,73 @@
+package com.ddhj.benchmark;
+
+import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItems;
+import com.ddhj.entity.OrderLine;
+
+import java.util.*;
+
+/**
+ * 生成与前端提交结构一致的订单数据，固定随机种子以便多次运行结果可比
+ */
+public class BenchmarkData {
+
+    private final Random random = new Random(42);
+
+    private final List<Long> categoryIds = new ArrayList<>();
+
+    private final List<Long> productIds = new ArrayList<>();
+
+    private final Map<Long, List<Long>> specIdsByProduct = new HashMap<>();
+
+    public void addCategory(Long categoryId) {
+        categoryIds.add(categoryId);
+    }
+
+    public void addProduct(Long productId, List<Long> specIds) {
+        productIds.add(productId);
+        specIdsByProduct.put(productId, specIds);
+    }
+
+    public List<Long> getSpecIds(Long productId) {
+        return specIdsByProduct.get(productId);
+    }
+
+    public Random getRandom() {
+        return random;
+    }
+
+    public Long randomCategoryId() {
+        return categoryIds.get(random.nextInt(categoryIds.size()));
+    }
+
+    public Long randomProductId() {
+        return productIds.get(random.nextInt(productIds.size()));
+    }
+
+    /**
+     * 随机生成订单；未添加商品时使用虚构的商品和规格ID
+     *
+     * @param lines 订单明细行数
+     */
+    public Order randomOrder(int lines) {
+        OrderItems items = new OrderItems();
+        double total = 0;
+        for (int i = 0; i < lines; i++) {
+            Long productId = productIds.isEmpty() ? i + 1L : productIds.get(random.nextInt(productIds.size()));
+            List<Long> specIds = specIdsByProduct.getOrDefault(productId, List.of(productId * 10));
+            OrderLine line = new OrderLine();
+            line.setSpecId(specIds.get(random.nextInt(specIds.size())));
+            line.setQuantity(1 + random.nextInt(3));
+            line.putExtra("规格名称", "规格");
+            items.lines(productId).add(line);
+            total += 20;
+        }
+        items.getExtra().put("notes", "");
+
+        Order order = new Order();
+        order.setItems(items);
+        order.setTotalAmount(total);
+        order.setPaidAmount(total);
+        return order;
+    }
+}
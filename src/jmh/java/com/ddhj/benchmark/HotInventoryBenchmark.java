@@ -0,0 +1,64 @@
+package com.ddhj.benchmark;
+
+import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItems;
+import com.ddhj.entity.OrderLine;
+import com.ddhj.service.HotInventoryService;
+import com.ddhj.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程对同一规格下单：db 为扣减规格表库存（每单争抢同一行锁），hot 为开启内存库存后预留计数器、定时回写
+ * 可用 -t 调整线程数观察竞争程度的影响
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class HotInventoryBenchmark {
+
+    @Param({"db", "hot"})
+    private String inventory;
+
+    private BenchmarkContext context;
+
+    private OrderService orderService;
+
+    private Long productId;
+
+    private Long specId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new BenchmarkContext().populate(1, 0, 0);
+        orderService = context.getBean(OrderService.class);
+        productId = context.getData().randomProductId();
+        specId = context.getData().getSpecIds(productId).get(0);
+        if ("hot".equals(inventory)) {
+            context.getBean(HotInventoryService.class).enable(specId);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean createOrder() {
+        OrderLine line = new OrderLine();
+        line.setSpecId(specId);
+        line.setQuantity(1);
+        OrderItems items = new OrderItems();
+        items.lines(productId).add(line);
+        items.getExtra().put("notes", "");
+
+        Order order = new Order();
+        order.setItems(items);
+        order.setTotalAmount(20.0);
+        order.setPaidAmount(20.0);
+        return orderService.createOrder(order);
+    }
+}
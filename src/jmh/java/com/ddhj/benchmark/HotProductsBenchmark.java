@@ -0,0 +1,48 @@
+package com.ddhj.benchmark;
+
+import com.ddhj.dto.HotProduct;
+import com.ddhj.service.StatisticsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热销商品统计，数据集为 products 个商品、orders 个分布在最近 30 天的订单
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HotProductsBenchmark {
+
+    @Param({"200"})
+    private int products;
+
+    @Param({"1000", "10000"})
+    private int orders;
+
+    @Param({"7", "30"})
+    private int days;
+
+    private BenchmarkContext context;
+
+    private StatisticsService statisticsService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new BenchmarkContext().populate(products, orders, 30);
+        statisticsService = context.getBean(StatisticsService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<HotProduct> getHotProducts() {
+        LocalDate today = LocalDate.now();
+        return statisticsService.getHotProducts(today.minusDays(days - 1), today, 10);
+    }
+}
@@ -0,0 +1,143 @@
+package com.ddhj.benchmark;
+
+import com.baomidou.mybatisplus.extension.handlers.JacksonTypeHandler;
+import com.ddhj.common.OrderItemsCodec;
+import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItem;
+import com.ddhj.entity.OrderItems;
+import com.ddhj.entity.Specification;
+import com.ddhj.service.OrderItemService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order.items 和 Specification.specs 读写 JSON 列的开销
+ * <p>
+ * items 对比原先 JacksonTypeHandler 解析为 Map 树与 OrderItemsCodec 直接解码为 OrderItems，
+ * 加 -prof gc 可查看每次操作的内存分配
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonTypeHandlerBenchmark {
+
+    private JacksonTypeHandler specsHandler;
+
+    private Map<String, String> specs;
+
+    private String specsJson;
+
+    @State(Scope.Benchmark)
+    public static class Items {
+
+        @Param({"1", "5", "20", "100"})
+        private int lines;
+
+        private JacksonTypeHandler mapHandler;
+
+        private Map<?, ?> map;
+
+        private OrderItems items;
+
+        private String json;
+
+        private final OrderItemService orderItemService = new OrderItemService();
+
+        @Setup
+        public void setup() {
+            mapHandler = new JacksonTypeHandler(Map.class);
+            items = new BenchmarkData().randomOrder(lines).getItems();
+            json = OrderItemsCodec.write(items);
+            map = (Map<?, ?>) mapHandler.parse(json);
+        }
+    }
+
+    @Setup
+    public void setup() throws NoSuchFieldException {
+        specsHandler = new JacksonTypeHandler(Map.class, Specification.class.getDeclaredField("specs"));
+        specs = new LinkedHashMap<>();
+        specs.put("尺寸", "1.8米");
+        specs.put("材质", "洒金宣纸");
+        specs.put("字体", "行书");
+        specsJson = specsHandler.toJson(specs);
+    }
+
+    @Benchmark
+    public String writeItemsJackson(Items state) {
+        return state.mapHandler.toJson(state.map);
+    }
+
+    @Benchmark
+    public Object readItemsJackson(Items state) {
+        return state.mapHandler.parse(state.json);
+    }
+
+    @Benchmark
+    public String writeItemsCodec(Items state) {
+        return OrderItemsCodec.write(state.items);
+    }
+
+    @Benchmark
+    public OrderItems readItemsCodec(Items state) {
+        return OrderItemsCodec.read(state.json);
+    }
+
+    /**
+     * 读出订单后解析为订单明细：原先的 Map 树加字符串转换
+     */
+    @Benchmark
+    public List<OrderItem> readAndParseItemsJackson(Items state) {
+        return legacyParseItems((Map<?, ?>) state.mapHandler.parse(state.json));
+    }
+
+    @Benchmark
+    public List<OrderItem> readAndParseItemsCodec(Items state) {
+        Order order = new Order();
+        order.setItems(OrderItemsCodec.read(state.json));
+        return state.orderItemService.parseItems(order);
+    }
+
+    /**
+     * 改为 OrderItems 之前 OrderItemService.parseItems 的实现
+     */
+    private static List<OrderItem> legacyParseItems(Map<?, ?> items) {
+        List<OrderItem> result = new ArrayList<>();
+        for (Map.Entry<?, ?> entry : items.entrySet()) {
+            String key = entry.getKey().toString();
+            if ("notes".equals(key) || !(entry.getValue() instanceof List)) {
+                continue;
+            }
+            Long productId = Long.parseLong(key);
+            for (Object element : (List<?>) entry.getValue()) {
+                if (!(element instanceof Map<?, ?> itemMap)) {
+                    continue;
+                }
+                Object specIdObj = itemMap.get("规格id");
+                Object quantityObj = itemMap.get("购买数量");
+
+                OrderItem item = new OrderItem();
+                item.setProductId(productId);
+                item.setSpecId(specIdObj == null ? null : Long.parseLong(specIdObj.toString()));
+                item.setQuantity(Integer.parseInt(quantityObj.toString()));
+                item.setStockDeferred(0);
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public String writeSpecs() {
+        return specsHandler.toJson(specs);
+    }
+
+    @Benchmark
+    public Object readSpecs() {
+        return specsHandler.parse(specsJson);
+    }
+}
@@ -0,0 +1,302 @@
+package com.ddhj.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.core.env.Environment;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 端到端压测：启动应用并写入模拟数据，按浏览、下单、看板的比例并发请求接口，
+ * 输出各接口吞吐量、p50/p99/p999 延迟以及数据库连接池的饱和情况
+ * <p>
+ * 运行: mvn -Pbenchmark compile exec:exec@loadtest -Dloadtest.args="--users=64 --duration=60"
+ * <p>
+ * 参数（均为 --key=value）：
+ * users 并发用户数，duration 压测秒数，warmup 预热秒数（不计入结果），
+ * categories/products/orders/days 数据集规模，pool-size 连接池大小，
+ * db-url/db-username/db-password 使用已导入 schema.sql 的空库代替内存 H2，
+ * replicas 内存 H2 从库数（写入数据集后复制一份，只读查询路由过去，之后的新订单不会同步）；
+ * 以 ddhj./server./spring. 开头的参数原样传给应用，例如对比虚拟线程与平台线程的承载能力：
+ * --users=2000 --ddhj.virtual-threads.enabled=true 与 --users=2000 --server.tomcat.threads.max=200
+ */
+public class LoadTest {
+
+    private final Map<String, String> options;
+
+    private final BenchmarkData data;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final String baseUrl;
+
+    private final List<Action> actions = new ArrayList<>();
+
+    private int totalWeight;
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    private volatile boolean recording;
+
+    private LoadTest(Map<String, String> options, BenchmarkData data, int port) {
+        this.options = options;
+        this.data = data;
+        this.baseUrl = "http://localhost:" + port + "/api";
+
+        LocalDate today = LocalDate.now();
+        // 浏览
+        action("GET /categories", 15, () -> get("/categories"));
+        action("GET /products", 25, () -> get("/products?categoryId=" + data.randomCategoryId()
+                + "&pageNum=" + (1 + ThreadLocalRandom.current().nextInt(5)) + "&pageSize=10"));
+        action("GET /products/{id}", 20, () -> get("/products/" + data.randomProductId()));
+        action("GET /specifications/product/{id}", 15, () -> get("/specifications/product/" + data.randomProductId()));
+        // 下单
+        action("POST /orders", 10, () -> post("/orders", data.randomOrder(1 + ThreadLocalRandom.current().nextInt(3))));
+        // 看板
+        action("GET /statistics/revenue", 5, () -> get("/statistics/revenue?mode=hour&date=" + today));
+        action("GET /statistics/revenue/day", 5, () -> get("/statistics/revenue/day?date=" + today));
+        action("GET /statistics/hot-products", 5, () -> get("/statistics/hot-products?startDate="
+                + today.minusDays(6) + "&endDate=" + today));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>(List.of(
+                "--spring.main.web-application-type=servlet",
+                "--server.port=0"));
+        for (String arg : args) {
+            if (arg.startsWith("--ddhj.") || arg.startsWith("--server.") || arg.startsWith("--spring.")) {
+                springArgs.add(arg);
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        springArgs.add("--spring.datasource.hikari.maximum-pool-size=" + options.getOrDefault("pool-size", "10"));
+        String url = options.get("db-url");
+        if (url != null) {
+            springArgs.add("--spring.datasource.driver-class-name=com.mysql.cj.jdbc.Driver");
+            springArgs.add("--spring.datasource.username=" + options.getOrDefault("db-username", "root"));
+            springArgs.add("--spring.datasource.password=" + options.getOrDefault("db-password", ""));
+        }
+        List<String> replicaUrls = new ArrayList<>();
+        for (int i = 1; url == null && i <= intOption(options, "replicas", 0); i++) {
+            replicaUrls.add(BenchmarkContext.memoryUrl("ddhj_replica" + i));
+        }
+        if (!replicaUrls.isEmpty()) {
+            springArgs.add("--ddhj.datasource.replica-urls=" + String.join(",", replicaUrls));
+            springArgs.add("--ddhj.datasource.replica-lag-query=");
+        }
+
+        try (BenchmarkContext context = new BenchmarkContext(url, springArgs.toArray(new String[0]))) {
+            System.out.println("写入数据集...");
+            context.populate(intOption(options, "categories", 10), intOption(options, "products", 500),
+                    intOption(options, "orders", 50000), intOption(options, "days", 30));
+            for (String replicaUrl : replicaUrls) {
+                context.copyTo(replicaUrl);
+            }
+
+            int port = Integer.parseInt(context.getBean(Environment.class).getRequiredProperty("local.server.port"));
+            LoadTest loadTest = new LoadTest(options, context.getData(), port);
+            loadTest.run(context.getBean(HikariDataSource.class).getHikariPoolMXBean());
+        }
+        System.exit(0);
+    }
+
+    private void run(HikariPoolMXBean pool) throws InterruptedException {
+        int users = intOption(options, "users", 32);
+        int warmup = intOption(options, "warmup", 10);
+        int duration = intOption(options, "duration", 60);
+        System.out.printf("并发用户 %d，预热 %d 秒，压测 %d 秒%n", users, warmup, duration);
+
+        // 每个模拟用户一个虚拟线程，数千并发用户也不会耗尽压测进程的线程
+        ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup + duration);
+        for (int i = 0; i < users; i++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < end) {
+                    execute(pick());
+                }
+            });
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmup));
+        recording = true;
+        PoolSampler sampler = new PoolSampler(pool);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleAtFixedRate(sampler, 0, 50, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+
+        workers.shutdown();
+        workers.awaitTermination(duration + 60L, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        scheduler.shutdownNow();
+
+        report(seconds, sampler, pool);
+    }
+
+    private void execute(Action action) {
+        long begin = System.nanoTime();
+        boolean ok;
+        try {
+            ok = action.request.call();
+        } catch (Exception e) {
+            ok = false;
+        }
+        if (recording) {
+            stats.computeIfAbsent(action.name, k -> new Stats()).record(System.nanoTime() - begin, ok);
+        }
+    }
+
+    private Action pick() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Action action : actions) {
+            value -= action.weight;
+            if (value < 0) {
+                return action;
+            }
+        }
+        return actions.get(actions.size() - 1);
+    }
+
+    private void action(String name, int weight, Callable<Boolean> request) {
+        actions.add(new Action(name, weight, request));
+        totalWeight += weight;
+    }
+
+    private boolean get(String path) throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET());
+    }
+
+    private boolean post(String path, Object body) throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))));
+    }
+
+    private boolean send(HttpRequest.Builder builder) throws Exception {
+        HttpResponse<String> response = client.send(builder.timeout(Duration.ofSeconds(30)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        return response.statusCode() == 200 && response.body().contains("\"code\":200");
+    }
+
+    private void report(double seconds, PoolSampler sampler, HikariPoolMXBean pool) {
+        System.out.println();
+        System.out.printf("%-36s %10s %8s %10s %10s %10s %10s %10s%n",
+                "接口", "请求数", "失败", "吞吐/秒", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+        long total = 0;
+        for (Action action : actions) {
+            Stats s = stats.get(action.name);
+            if (s == null) {
+                continue;
+            }
+            long[] latencies = s.snapshot();
+            total += latencies.length;
+            System.out.printf("%-36s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    action.name, latencies.length, s.errors.get(), latencies.length / seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    percentile(latencies, 1.0));
+        }
+        System.out.printf("%n总吞吐 %.1f 请求/秒（%d 个请求，%.1f 秒）%n", total / seconds, total, seconds);
+        System.out.printf("连接池: 大小 %d，平均活跃 %.1f，最大活跃 %d，有线程等待连接的采样占比 %.1f%%，最多等待线程 %d%n",
+                pool.getTotalConnections(), sampler.averageActive(), sampler.maxActive,
+                sampler.saturatedRatio() * 100, sampler.maxWaiting);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private record Action(String name, int weight, Callable<Boolean> request) {
+    }
+
+    /**
+     * 单个接口的延迟（纳秒）和失败数
+     */
+    private static class Stats {
+
+        private long[] latencies = new long[1024];
+
+        private int size;
+
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void record(long nanos, boolean ok) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+        }
+
+        synchronized long[] snapshot() {
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * 定时采样连接池的活跃连接数和等待获取连接的线程数
+     */
+    private static class PoolSampler implements Runnable {
+
+        private final HikariPoolMXBean pool;
+
+        private long samples;
+
+        private long activeSum;
+
+        private long saturated;
+
+        private int maxActive;
+
+        private int maxWaiting;
+
+        PoolSampler(HikariPoolMXBean pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public synchronized void run() {
+            int active = pool.getActiveConnections();
+            int waiting = pool.getThreadsAwaitingConnection();
+            samples++;
+            activeSum += active;
+            maxActive = Math.max(maxActive, active);
+            maxWaiting = Math.max(maxWaiting, waiting);
+            if (waiting > 0) {
+                saturated++;
+            }
+        }
+
+        synchronized double averageActive() {
+            return samples == 0 ? 0 : (double) activeSum / samples;
+        }
+
+        synchronized double saturatedRatio() {
+            return samples == 0 ? 0 : (double) saturated / samples;
+        }
+    }
+}
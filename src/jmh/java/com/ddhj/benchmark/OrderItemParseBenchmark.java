@@ -0,0 +1,35 @@
+package com.ddhj.benchmark;
+
+import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItem;
+import com.ddhj.service.OrderItemService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单时解析订单 items 为订单明细
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderItemParseBenchmark {
+
+    @Param({"1", "5", "20"})
+    private int lines;
+
+    private final OrderItemService orderItemService = new OrderItemService();
+
+    private Order order;
+
+    @Setup
+    public void setup() {
+        order = new BenchmarkData().randomOrder(lines);
+    }
+
+    @Benchmark
+    public List<OrderItem> parseItems() {
+        return orderItemService.parseItems(order);
+    }
+}
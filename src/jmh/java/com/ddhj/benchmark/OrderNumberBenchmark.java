@@ -0,0 +1,33 @@
+package com.ddhj.benchmark;
+
+import com.ddhj.common.TimeOrderNumberGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成，legacy 为原先 DateTimeFormatter + Random + String.format 的实现，作为对照
+ * 可用 -t 指定线程数观察竞争下的表现
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderNumberBenchmark {
+
+    private final TimeOrderNumberGenerator generator = new TimeOrderNumberGenerator(1);
+
+    @Benchmark
+    public String timeOrdered() {
+        return generator.next();
+    }
+
+    @Benchmark
+    public String legacy() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        String random = String.format("%06d", new Random().nextInt(1000000));
+        return timestamp + random;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ddhj.common;
+
+/**
+ * 分类、商品或规格（含库存）发生变化
+ */
+public class CatalogChangedEvent {
+
+    public static final CatalogChangedEvent INSTANCE = new CatalogChangedEvent(false);
+
+    /**
+     * 只有下单、删单或库存回写引起的库存变化，目录快照合并后定期刷新
+     */
+    public static final CatalogChangedEvent STOCK = new CatalogChangedEvent(true);
+
+    private final boolean stockOnly;
+
+    private CatalogChangedEvent(boolean stockOnly) {
+        this.stockOnly = stockOnly;
+    }
+
+    public boolean isStockOnly() {
+        return stockOnly;
+    }
+}
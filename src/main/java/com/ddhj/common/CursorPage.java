@@ -0,0 +1,58 @@
+package com.ddhj.common;
+
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 游标分页结果
+ */
+@Data
+public class CursorPage<T> {
+
+    /**
+     * 每页最大数量，超过时按该值返回，偏移分页同样受此限制
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private List<T> records;
+
+    /**
+     * 下一页游标，没有更多数据时为 null
+     */
+    private String nextCursor;
+
+    /**
+     * 总数，仅在请求统计时返回
+     */
+    private Long total;
+
+    /**
+     * 将排序键 (时间, id) 编码为不透明游标
+     */
+    public static String encodeCursor(LocalDateTime time, Long id) {
+        String raw = time + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    public static Key decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(',');
+            return new Key(LocalDateTime.parse(raw.substring(0, index)), Long.parseLong(raw.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+
+    public record Key(LocalDateTime time, Long id) {
+    }
+}
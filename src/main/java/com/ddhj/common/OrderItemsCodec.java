@@ -0,0 +1,320 @@
+package com.ddhj.common;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
+import com.alibaba.fastjson2.JSONWriter;
+import com.alibaba.fastjson2.util.Fnv;
+import com.ddhj.entity.OrderItems;
+import com.ddhj.entity.OrderLine;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 订单 items 的 JSON 编解码
+ * <p>
+ * 用 fastjson2 的流式读写按固定结构直接生成 OrderItems，不再经过 Map/List 中间树，
+ * 商品ID、规格id、购买数量在解码时一次性转换为数值。
+ * 字段名按哈希匹配，规格名称等常见字段名复用同一个字符串实例，不必每次解码都创建。
+ * 无法识别的字段按原值保留，历史数据可无损读出再写回。
+ * 接口请求体由 Jackson 解析，按同样的结构直接从 JsonParser 读取，保留的字段值类型与 fastjson2 一致。
+ */
+public final class OrderItemsCodec {
+
+    private static final long SPEC_ID_HASH = Fnv.hashCode64(OrderLine.SPEC_ID);
+
+    private static final long QUANTITY_HASH = Fnv.hashCode64(OrderLine.QUANTITY);
+
+    private static final int MAX_NAMES = 256;
+
+    /**
+     * 字段名哈希 -> 字段名，最多缓存 MAX_NAMES 个
+     */
+    private static final Map<Long, String> NAMES = new ConcurrentHashMap<>();
+
+    private OrderItemsCodec() {
+    }
+
+    /**
+     * 解码 items JSON
+     *
+     * @return json 为 null 或不是 JSON 对象时返回 null
+     */
+    public static OrderItems read(String json) {
+        if (json == null) {
+            return null;
+        }
+        try (JSONReader reader = JSONReader.of(json)) {
+            if (!reader.nextIfObjectStart()) {
+                return null;
+            }
+            OrderItems items = new OrderItems();
+            while (!reader.nextIfObjectEnd()) {
+                String name = reader.readFieldName();
+                Long productId = parseId(name);
+                if (productId == null || !reader.isArray()) {
+                    items.getExtra().put(name, reader.readAny());
+                    continue;
+                }
+
+                List<OrderLine> lines = items.lines(productId);
+                reader.nextIfArrayStart();
+                while (!reader.nextIfArrayEnd()) {
+                    if (reader.isObject()) {
+                        lines.add(readLine(reader));
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+            }
+            return items;
+        }
+    }
+
+    public static String write(OrderItems items) {
+        try (JSONWriter writer = JSONWriter.of()) {
+            writer.startObject();
+            for (Map.Entry<Long, List<OrderLine>> entry : items.getProducts().entrySet()) {
+                writer.writeName(entry.getKey().toString());
+                writer.writeColon();
+                writer.startArray();
+                List<OrderLine> lines = entry.getValue();
+                for (int i = 0; i < lines.size(); i++) {
+                    if (i > 0) {
+                        writer.writeComma();
+                    }
+                    writeLine(writer, lines.get(i));
+                }
+                writer.endArray();
+            }
+            writeExtra(writer, items.getExtra());
+            writer.endObject();
+            return writer.toString();
+        }
+    }
+
+    private static OrderLine readLine(JSONReader reader) {
+        reader.nextIfObjectStart();
+        OrderLine line = new OrderLine();
+        while (!reader.nextIfObjectEnd()) {
+            long hash = reader.readFieldNameHashCode();
+            if (hash == SPEC_ID_HASH) {
+                Object value = reader.readAny();
+                Long specId = toLong(value);
+                if (specId != null || value == null) {
+                    line.setSpecId(specId);
+                } else {
+                    line.putExtra(OrderLine.SPEC_ID, value);
+                }
+            } else if (hash == QUANTITY_HASH) {
+                Object value = reader.readAny();
+                Long quantity = toLong(value);
+                if (quantity != null && quantity == quantity.intValue()) {
+                    line.setQuantity(quantity.intValue());
+                } else {
+                    line.putExtra(OrderLine.QUANTITY, value);
+                }
+            } else {
+                String name = fieldName(reader, hash);
+                line.putExtra(name, reader.readAny());
+            }
+        }
+        return line;
+    }
+
+    private static void writeLine(JSONWriter writer, OrderLine line) {
+        writer.startObject();
+        if (line.getSpecId() != null) {
+            writer.writeName(OrderLine.SPEC_ID);
+            writer.writeColon();
+            writer.writeInt64(line.getSpecId());
+        }
+        if (line.getQuantity() != null) {
+            writer.writeName(OrderLine.QUANTITY);
+            writer.writeColon();
+            writer.writeInt32(line.getQuantity());
+        }
+        writeExtra(writer, line.getExtra());
+        writer.endObject();
+    }
+
+    private static void writeExtra(JSONWriter writer, Map<String, Object> extra) {
+        if (extra == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : extra.entrySet()) {
+            writer.writeName(entry.getKey());
+            writer.writeColon();
+            writer.writeAny(entry.getValue());
+        }
+    }
+
+    /**
+     * 从 Jackson 解析器读取 items，当前 token 需为字段值的第一个 token
+     *
+     * @return 不是 JSON 对象时跳过该值并返回 null
+     */
+    private static OrderItems read(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        OrderItems items = new OrderItems();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken value = p.nextToken();
+            Long productId = parseId(name);
+            if (productId == null || value != JsonToken.START_ARRAY) {
+                items.getExtra().put(name, readAny(p));
+                continue;
+            }
+
+            List<OrderLine> lines = items.lines(productId);
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                if (p.currentToken() == JsonToken.START_OBJECT) {
+                    lines.add(readLine(p));
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return items;
+    }
+
+    private static OrderLine readLine(JsonParser p) throws IOException {
+        OrderLine line = new OrderLine();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            Object value = readAny(p);
+            if (OrderLine.SPEC_ID.equals(name)) {
+                Long specId = toLong(value);
+                if (specId != null || value == null) {
+                    line.setSpecId(specId);
+                } else {
+                    line.putExtra(name, value);
+                }
+            } else if (OrderLine.QUANTITY.equals(name)) {
+                Long quantity = toLong(value);
+                if (quantity != null && quantity == quantity.intValue()) {
+                    line.setQuantity(quantity.intValue());
+                } else {
+                    line.putExtra(name, value);
+                }
+            } else {
+                line.putExtra(name, value);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * 读取当前值，类型与 fastjson2 的 readAny 相同：
+     * 对象为 JSONObject，数组为 JSONArray，整数为 Integer/Long/BigInteger，小数为 BigDecimal，科学计数法为 Double
+     */
+    private static Object readAny(JsonParser p) throws IOException {
+        return switch (p.currentToken()) {
+            case START_OBJECT -> {
+                JSONObject object = new JSONObject();
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = p.currentName();
+                    p.nextToken();
+                    object.put(name, readAny(p));
+                }
+                yield object;
+            }
+            case START_ARRAY -> {
+                JSONArray array = new JSONArray();
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    array.add(readAny(p));
+                }
+                yield array;
+            }
+            case VALUE_STRING -> p.getText();
+            case VALUE_NUMBER_INT -> p.getNumberValue();
+            case VALUE_NUMBER_FLOAT -> {
+                String text = p.getText();
+                yield text.indexOf('e') >= 0 || text.indexOf('E') >= 0 ? p.getDoubleValue() : p.getDecimalValue();
+            }
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            default -> null;
+        };
+    }
+
+    /**
+     * 取当前字段名，需在 readFieldNameHashCode 之后、读取字段值之前调用
+     */
+    private static String fieldName(JSONReader reader, long hash) {
+        String name = NAMES.get(hash);
+        if (name == null) {
+            name = reader.getFieldName();
+            if (NAMES.size() < MAX_NAMES) {
+                NAMES.putIfAbsent(hash, name);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * 纯数字的键视为商品ID
+     */
+    private static Long parseId(String text) {
+        int length = text.length();
+        if (length == 0 || length > 18) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+        return Long.parseLong(text);
+    }
+
+    /**
+     * 整数或数字字符串转为 Long，其他返回 null
+     */
+    private static Long toLong(Object value) {
+        if (value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String text) {
+            return parseId(text.trim());
+        }
+        return null;
+    }
+
+    /**
+     * 接口返回订单时直接输出编码后的 JSON
+     */
+    public static class Serializer extends JsonSerializer<OrderItems> {
+
+        @Override
+        public void serialize(OrderItems items, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeRawValue(write(items));
+        }
+    }
+
+    /**
+     * 接口接收订单时直接从请求体的解析器读取，不再复制成字符串后重新解析
+     */
+    public static class Deserializer extends JsonDeserializer<OrderItems> {
+
+        @Override
+        public OrderItems deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return read(p);
+        }
+    }
+}
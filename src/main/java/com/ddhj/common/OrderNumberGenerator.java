@@ -0,0 +1,12 @@
+package com.ddhj.common;
+
+/**
+ * 订单号生成器
+ * <p>
+ * 生成的订单号需全局唯一（订单表有唯一索引 uk_order_number），
+ * 注册自定义的 OrderNumberGenerator Bean 即可替换默认实现。
+ */
+public interface OrderNumberGenerator {
+
+    String next();
+}
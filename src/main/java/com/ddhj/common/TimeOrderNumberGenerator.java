@@ -0,0 +1,148 @@
+package com.ddhj.common;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间递增的订单号：yyyyMMddHHmmss + 3 位节点号 + 6 位秒内序号，共 23 位
+ * <p>
+ * 秒数和序号打包在一个 AtomicLong 中用 CAS 推进，不加锁。
+ * 同一节点内严格递增；时钟回拨时沿用上一次的秒数，单秒内序号用完时借用下一秒，
+ * 因此不会重复。不同节点依靠节点号区分，多实例部署时每个实例需配置不同的节点号。
+ * <p>
+ * 状态只在内存中，启动时需用 {@link #resumeAfter(String)} 从已保存的最大订单号之后继续，
+ * 否则在同一秒内重启或重启前时钟被回拨时会发出重复的订单号。
+ */
+public class TimeOrderNumberGenerator implements OrderNumberGenerator {
+
+    public static final int MAX_NODE_ID = 999;
+
+    private static final int MAX_SEQUENCE = 999_999;
+
+    private static final int SEQUENCE_BITS = 20;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final int LENGTH = 23;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("uuuuMMddHHmmss")
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    private final char[] node;
+
+    private final ZoneId zone;
+
+    /**
+     * 高位为秒数，低 20 位为秒内序号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * 最近一秒的时间前缀，每秒只格式化一次
+     */
+    private volatile Prefix prefix = new Prefix(-1, null);
+
+    public TimeOrderNumberGenerator(int nodeId) {
+        this(nodeId, ZoneId.systemDefault());
+    }
+
+    public TimeOrderNumberGenerator(int nodeId, ZoneId zone) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点号必须在 0 到 " + MAX_NODE_ID + " 之间: " + nodeId);
+        }
+        this.node = new char[]{digit(nodeId / 100), digit(nodeId / 10 % 10), digit(nodeId % 10)};
+        this.zone = zone;
+    }
+
+    @Override
+    public String next() {
+        long now = System.currentTimeMillis() / 1000;
+        long current;
+        long next;
+        do {
+            current = state.get();
+            long second = current >>> SEQUENCE_BITS;
+            long sequence = current & SEQUENCE_MASK;
+            if (now > second) {
+                next = now << SEQUENCE_BITS;
+            } else if (sequence < MAX_SEQUENCE) {
+                next = current + 1;
+            } else {
+                next = (second + 1) << SEQUENCE_BITS;
+            }
+        } while (!state.compareAndSet(current, next));
+
+        return format(next >>> SEQUENCE_BITS, (int) (next & SEQUENCE_MASK));
+    }
+
+    /**
+     * 从已发出的订单号之后继续编号，之后生成的订单号都大于它
+     *
+     * @param orderNumber 已保存的最大订单号，为 null、不是本生成器的格式或节点号不同时忽略
+     * @return 是否已按该订单号调整
+     */
+    public boolean resumeAfter(String orderNumber) {
+        if (orderNumber == null || orderNumber.length() != LENGTH
+                || !orderNumber.chars().allMatch(c -> c >= '0' && c <= '9')
+                || !orderNumber.startsWith(new String(node), 14)) {
+            return false;
+        }
+        long second;
+        try {
+            second = LocalDateTime.parse(orderNumber.substring(0, 14), TIMESTAMP_FORMAT).atZone(zone).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+        // 从下一秒开始，不必再比较该秒内的序号
+        state.accumulateAndGet((second + 1) << SEQUENCE_BITS, Math::max);
+        return true;
+    }
+
+    private String format(long second, int sequence) {
+        Prefix p = prefix;
+        if (p.second != second) {
+            p = new Prefix(second, timestamp(second));
+            prefix = p;
+        }
+
+        char[] chars = new char[LENGTH];
+        System.arraycopy(p.chars, 0, chars, 0, 14);
+        System.arraycopy(node, 0, chars, 14, 3);
+        for (int i = LENGTH - 1; i >= 17; i--) {
+            chars[i] = digit(sequence % 10);
+            sequence /= 10;
+        }
+        return new String(chars);
+    }
+
+    private char[] timestamp(long second) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), zone);
+        char[] chars = new char[14];
+        fill(chars, 0, 4, time.getYear());
+        fill(chars, 4, 2, time.getMonthValue());
+        fill(chars, 6, 2, time.getDayOfMonth());
+        fill(chars, 8, 2, time.getHour());
+        fill(chars, 10, 2, time.getMinute());
+        fill(chars, 12, 2, time.getSecond());
+        return chars;
+    }
+
+    private static void fill(char[] chars, int offset, int width, int value) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            chars[i] = digit(value % 10);
+            value /= 10;
+        }
+    }
+
+    private static char digit(int value) {
+        return (char) ('0' + value);
+    }
+
+    private record Prefix(long second, char[] chars) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.ddhj.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String CATEGORIES = "categories";
+    public static final String CATEGORY = "category";
+    public static final String PRODUCT = "product";
+    public static final String PRODUCT_PAGE = "productPage";
+    public static final String PRODUCT_LIST = "productList";
+    public static final String SPECIFICATION = "specification";
+    public static final String PRODUCT_SPECIFICATIONS = "productSpecifications";
+
+    public static final List<String> CACHE_NAMES = List.of(CATEGORIES, CATEGORY, PRODUCT, PRODUCT_PAGE,
+            PRODUCT_LIST, SPECIFICATION, PRODUCT_SPECIFICATIONS);
+
+    /**
+     * 事务中的缓存失效延迟到提交后执行，避免并发读取把提交前的旧数据写回缓存
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${ddhj.cache.spec}") String spec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheSpecification(spec);
+        cacheManager.setCacheNames(CACHE_NAMES);
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
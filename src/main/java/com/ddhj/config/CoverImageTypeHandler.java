@@ -0,0 +1,51 @@
+package com.ddhj.config;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONReader;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * images 列与首图的转换：读取时只读出 JSON 数组的第一张，不解析整个列表；
+ * 作为参数时写入只含该图片的数组，可用于按首图查询，或把只有一张图片的商品写回 images 列
+ */
+public class CoverImageTypeHandler extends BaseTypeHandler<String> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) throws SQLException {
+        ps.setString(i, JSON.toJSONString(List.of(parameter)));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return firstImage(rs.getString(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return firstImage(rs.getString(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return firstImage(cs.getString(columnIndex));
+    }
+
+    private String firstImage(String json) {
+        if (json == null) {
+            return null;
+        }
+        try (JSONReader reader = JSONReader.of(json)) {
+            if (!reader.nextIfArrayStart() || reader.nextIfArrayEnd() || !reader.isString()) {
+                return null;
+            }
+            return reader.readString();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ddhj.config;
+
+import com.ddhj.common.OrderItemsCodec;
+import com.ddhj.entity.OrderItems;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 订单 items 列与 OrderItems 的转换，列中仍存储原有格式的 JSON
+ */
+@MappedTypes(OrderItems.class)
+public class OrderItemsTypeHandler extends BaseTypeHandler<OrderItems> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, OrderItems parameter, JdbcType jdbcType) throws SQLException {
+        ps.setString(i, OrderItemsCodec.write(parameter));
+    }
+
+    @Override
+    public OrderItems getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return OrderItemsCodec.read(rs.getString(columnName));
+    }
+
+    @Override
+    public OrderItems getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return OrderItemsCodec.read(rs.getString(columnIndex));
+    }
+
+    @Override
+    public OrderItems getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return OrderItemsCodec.read(cs.getString(columnIndex));
+    }
+}
@@ -0,0 +1,55 @@
+package com.ddhj.config;
+
+import com.ddhj.common.OrderNumberGenerator;
+import com.ddhj.common.TimeOrderNumberGenerator;
+import com.ddhj.mapper.OrderNumberRegistryMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class OrderNumberConfig {
+
+    private static final int RESUME_BATCH_SIZE = 100;
+
+    /**
+     * 默认订单号生成器，多实例部署时每个实例需配置不同的 ddhj.order-number.node-id
+     * 从本节点已生成的最大订单号之后继续编号，同一秒内重启或时钟回拨后重启也不会重复
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public OrderNumberGenerator orderNumberGenerator(@Value("${ddhj.order-number.node-id:0}") int nodeId,
+                                                     OrderNumberRegistryMapper orderNumberRegistryMapper) {
+        TimeOrderNumberGenerator generator = new TimeOrderNumberGenerator(nodeId);
+        resume(generator, nodeId, orderNumberRegistryMapper);
+        return generator;
+    }
+
+    /**
+     * 倒序查找本节点生成的订单号，跳过同为 23 位数字但日期非法的旧订单号或外部订单号，
+     * 从找到的第一个合法订单号之后继续编号；外部订单号排序再靠后也不会让生成器跳过它
+     *
+     * @return 是否找到已生成的订单号
+     */
+    static boolean resume(TimeOrderNumberGenerator generator, int nodeId,
+                          OrderNumberRegistryMapper orderNumberRegistryMapper) {
+        String node = String.format("%03d", nodeId);
+        String before = null;
+        List<String> orderNumbers;
+        do {
+            orderNumbers = orderNumberRegistryMapper.selectGenerated(node, before, RESUME_BATCH_SIZE);
+            for (String orderNumber : orderNumbers) {
+                if (generator.resumeAfter(orderNumber)) {
+                    return true;
+                }
+            }
+            if (!orderNumbers.isEmpty()) {
+                before = orderNumbers.get(orderNumbers.size() - 1);
+            }
+        } while (orderNumbers.size() == RESUME_BATCH_SIZE);
+        return false;
+    }
+}
@@ -0,0 +1,93 @@
+package com.ddhj.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读写分离（配置 ddhj.datasource.replica-urls 后开启）
+ * <p>
+ * 标注 @Transactional(readOnly = true) 的报表、列表查询走从库，写操作和没有只读事务的查询走主库。
+ * 从库连接池复制主库的 spring.datasource.hikari 配置，只替换地址和账号。
+ */
+@Configuration
+@ConditionalOnProperty("ddhj.datasource.replica-urls")
+public class ReadReplicaConfig {
+
+    /**
+     * 从库地址，多个用逗号分隔
+     */
+    @Value("${ddhj.datasource.replica-urls}")
+    private List<String> replicaUrls;
+
+    @Value("${ddhj.datasource.replica-username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${ddhj.datasource.replica-password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    /**
+     * 复制延迟超过该值的从库暂停使用
+     */
+    @Value("${ddhj.datasource.max-replica-lag:5s}")
+    private Duration maxReplicaLag;
+
+    @Value("${ddhj.datasource.replica-lag-query:SHOW REPLICA STATUS}")
+    private String replicaLagQuery;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             MeterRegistry meterRegistry) {
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        for (String url : replicaUrls) {
+            if (!StringUtils.hasText(url)) {
+                continue;
+            }
+            String name = "replica-" + (replicas.size() + 1);
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setPoolName(name);
+            config.setJdbcUrl(url.trim());
+            config.setUsername(replicaUsername);
+            config.setPassword(replicaPassword);
+            config.setReadOnly(true);
+            // 从库不可用时照常启动，只读查询先走主库
+            config.setInitializationFailTimeout(-1);
+            config.setMetricRegistry(null);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.put(name, new HikariDataSource(config));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxReplicaLag, replicaLagQuery, meterRegistry);
+    }
+
+    /**
+     * Mapper 和事务管理器使用的数据源
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,179 @@
+package com.ddhj.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离数据源：只读事务中的查询路由到从库，其余走主库
+ * <p>
+ * 从库按轮询选择。复制延迟超过 maxLag、延迟查询失败或获取连接失败的从库暂停使用，
+ * 由定时检查恢复；没有可用从库时回退到主库。
+ * 创建时同步检查一次，检查通过的从库立即参与查询；从库不可达时启动最多多等待一个连接超时（connection-timeout）。
+ * 事务开始时还不知道是否只读，需用 LazyConnectionDataSourceProxy 包装，执行第一条语句时才取连接。
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final Duration maxLag;
+
+    /**
+     * 查询复制延迟（秒）的语句，为空时只检查连接是否可用
+     */
+    private final String lagQuery;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, HikariDataSource> replicas, Duration maxLag,
+                                    String lagQuery, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery == null ? "" : lagQuery.trim();
+        replicas.forEach((name, dataSource) -> {
+            Replica replica = new Replica(name, dataSource);
+            this.replicas.add(replica);
+            Gauge.builder("ddhj.datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("replica", name)
+                    .baseUnit("seconds")
+                    .description("从库复制延迟，无法获取时为 NaN")
+                    .register(meterRegistry);
+            Gauge.builder("ddhj.datasource.replica.available", replica, r -> r.available ? 1 : 0)
+                    .tag("replica", name)
+                    .description("从库是否参与只读查询")
+                    .register(meterRegistry);
+        });
+        checkReplicas();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+                if (!replica.available) {
+                    continue;
+                }
+                try {
+                    return replica.dataSource.getConnection();
+                } catch (SQLException e) {
+                    replica.suspend("获取连接失败: " + e.getMessage());
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * 指定账号的连接不做路由，始终取自主库：从库使用单独配置的账号，调用方传入的账号未必能登录从库
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * 检查各从库的复制延迟，延迟在 maxLag 以内的从库参与只读查询
+     */
+    @Scheduled(fixedDelayString = "${ddhj.datasource.replica-check-interval:2000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (lagQuery.isEmpty()) {
+                    replica.lagSeconds = 0;
+                } else {
+                    replica.lagSeconds = queryLag(connection);
+                }
+            } catch (SQLException e) {
+                replica.lagSeconds = Double.NaN;
+                replica.suspend("检查失败: " + e.getMessage());
+                continue;
+            }
+
+            if (Double.isNaN(replica.lagSeconds)) {
+                replica.suspend("复制未运行");
+            } else if (replica.lagSeconds > maxLag.toSeconds()) {
+                replica.suspend("复制延迟 " + (long) replica.lagSeconds + " 秒");
+            } else if (!replica.available) {
+                replica.available = true;
+                log.info("从库 {} 恢复使用，复制延迟 {} 秒", replica.name, (long) replica.lagSeconds);
+            }
+        }
+    }
+
+    /**
+     * 执行延迟查询：取 Seconds_Behind_Source（MySQL 8.0.22+）或 Seconds_Behind_Master 列，都没有时取第一列。
+     * 查询结果为空（不是从库）视为没有延迟，列值为 NULL（复制线程未运行）返回 NaN
+     */
+    private double queryLag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (!resultSet.next()) {
+                return 0;
+            }
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int column = 1;
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                String label = metaData.getColumnLabel(i);
+                if ("Seconds_Behind_Source".equalsIgnoreCase(label) || "Seconds_Behind_Master".equalsIgnoreCase(label)) {
+                    column = i;
+                    break;
+                }
+            }
+            long lag = resultSet.getLong(column);
+            return resultSet.wasNull() ? Double.NaN : lag;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+
+    private static class Replica {
+
+        private final String name;
+
+        private final HikariDataSource dataSource;
+
+        /**
+         * 检查通过前不参与查询
+         */
+        private volatile boolean available;
+
+        private volatile double lagSeconds = Double.NaN;
+
+        Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        void suspend(String reason) {
+            if (available) {
+                available = false;
+                log.warn("从库 {} 暂停使用，只读查询回退到主库: {}", name, reason);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ddhj.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录每条 Mapper 语句的耗时（指标 ddhj.sql，按语句ID区分），并按采样率打印慢查询
+ */
+@Slf4j
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class SqlMetricsInterceptor implements Interceptor {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 超过该耗时的语句视为慢查询
+     */
+    @Value("${ddhj.sql.slow-threshold:500ms}")
+    private Duration slowThreshold;
+
+    /**
+     * 慢查询日志采样率（0-1），避免数据库整体变慢时日志刷屏
+     */
+    @Value("${ddhj.sql.slow-log-sample-rate:1.0}")
+    private double slowLogSampleRate;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+            timer(statement).record(elapsed, TimeUnit.NANOSECONDS);
+            if (elapsed > slowThreshold.toNanos() && ThreadLocalRandom.current().nextDouble() < slowLogSampleRate) {
+                BoundSql boundSql = statement.getBoundSql(invocation.getArgs()[1]);
+                log.warn("慢查询 {} 耗时 {} ms: {}", statement.getId(), elapsed / 1_000_000,
+                        boundSql.getSql().replaceAll("\\s+", " "));
+            }
+        }
+    }
+
+    private Timer timer(MappedStatement statement) {
+        return timers.computeIfAbsent(statement.getId(), id -> Timer.builder("ddhj.sql")
+                .description("Mapper 语句耗时")
+                .tag("statement", id)
+                .tag("type", statement.getSqlCommandType().name())
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
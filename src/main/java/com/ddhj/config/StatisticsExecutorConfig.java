@@ -0,0 +1,41 @@
+package com.ddhj.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class StatisticsExecutorConfig {
+
+    /**
+     * 统计看板并行查询的线程池
+     * 每个任务占用一个数据库连接，线程数应明显小于连接池大小，队列满时直接拒绝，由看板标记该部分失败
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService statisticsExecutor(@Value("${ddhj.statistics.workers:4}") int workers,
+                                              @Value("${ddhj.statistics.queue-capacity:100}") int queueCapacity,
+                                              @Value("${ddhj.virtual-threads.enabled:false}") boolean virtualThreads,
+                                              MeterRegistry meterRegistry) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("statistics-", 1).factory()
+                : runnable -> {
+                    Thread thread = new Thread(runnable, "statistics-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "statistics", Tags.empty());
+    }
+}
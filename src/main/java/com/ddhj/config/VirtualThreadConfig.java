@@ -0,0 +1,37 @@
+package com.ddhj.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程模式（ddhj.virtual-threads.enabled=true）
+ * <p>
+ * Tomcat 为每个请求创建一个虚拟线程，不再受 200 个工作线程的限制，
+ * 此时并发访问数据库的上限由连接池大小决定，超出的请求在连接池中排队等待。
+ */
+@Configuration
+@ConditionalOnProperty(name = "ddhj.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * 定时任务（热点库存回写、图片回收）在虚拟线程中执行
+     */
+    @Bean
+    public TaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(2);
+        scheduler.setThreadFactory(Thread.ofVirtual().name("scheduling-", 1).factory());
+        return scheduler;
+    }
+}
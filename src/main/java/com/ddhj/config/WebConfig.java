@@ -1,10 +1,13 @@
 package com.ddhj.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
@@ -17,9 +20,20 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowCredentials(true);
     }
 
+    /**
+     * 按内容摘要命名的原图及其变体（xxx_compressed.jpg 等）
+     */
+    private static final String HASHED_IMAGE = "/image/{filename:[0-9a-f]{64}(?:_[a-z]+)?\\.[a-z]+}";
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // 摘要命名的文件内容不会变化，可长期缓存
+        registry.addResourceHandler(HASHED_IMAGE)
+                .addResourceLocations("file:image/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
+        // 旧的 1.png 等图片及 .cache 派生图可能被替换或删除，每次按 Last-Modified 协商
         registry.addResourceHandler("/image/**")
-                .addResourceLocations("file:image/");
+                .addResourceLocations("file:image/")
+                .setCacheControl(CacheControl.noCache().cachePublic());
     }
 }
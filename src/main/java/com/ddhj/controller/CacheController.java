@@ -0,0 +1,47 @@
+package com.ddhj.controller;
+
+import com.ddhj.common.Result;
+import com.ddhj.config.CacheConfig;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Tag(name = "缓存监控")
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Operation(summary = "获取缓存命中统计")
+    @GetMapping("/stats")
+    public Result<Map<String, Map<String, Object>>> getStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String name : CacheConfig.CACHE_NAMES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache == null
+                    || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+                continue;
+            }
+            CacheStats stats = nativeCache.stats();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("size", nativeCache.estimatedSize());
+            item.put("hitCount", stats.hitCount());
+            item.put("missCount", stats.missCount());
+            item.put("hitRate", stats.hitRate());
+            item.put("evictionCount", stats.evictionCount());
+            result.put(name, item);
+        }
+        return Result.success(result);
+    }
+}
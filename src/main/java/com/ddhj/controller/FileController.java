@@ -1,64 +1,58 @@
 package com.ddhj.controller;
 
 import com.ddhj.common.Result;
+import com.ddhj.service.ImageService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
+import javax.annotation.Resource;
 import java.io.IOException;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
+@Slf4j
 @Tag(name = "文件上传")
 @RestController
 @RequestMapping("/upload")
 public class FileController {
 
-    private static final String UPLOAD_DIR = "image/";
+    @Resource
+    private ImageService imageService;
 
     @Operation(summary = "上传图片")
     @PostMapping
-    public Result<String> uploadImage(@RequestParam("file") MultipartFile file) {
+    public Result<Map<String, Object>> uploadImage(@RequestParam("file") MultipartFile file) {
         if (file.isEmpty()) {
             return Result.error("文件不能为空");
         }
 
         try {
-            // 获取项目根目录的绝对路径
-            String projectPath = System.getProperty("user.dir");
-            File uploadDir = new File(projectPath, UPLOAD_DIR);
-
-            // 创建上传目录
-            if (!uploadDir.exists()) {
-                uploadDir.mkdirs();
-            }
-
-            // 生成唯一文件名
-            String originalFilename = file.getOriginalFilename();
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-            String filename = UUID.randomUUID().toString() + extension;
-
-            // 保存并压缩文件
-            File dest = new File(uploadDir, filename);
-
-            // 使用 Thumbnailator 进行压缩
-            // scale(1f) 表示保持原图尺寸，outputQuality(0.8f) 表示设置图片质量为 80%
-            net.coobird.thumbnailator.Thumbnails.of(file.getInputStream())
-                    .scale(1f)
-                    .outputQuality(0.8f)
-                    .toFile(dest);
-
-            // 返回访问路径
-            String filePath = "/api/image/" + filename;
-            return Result.success(filePath);
+            // 不等待后台处理，压缩图未生成时返回原图地址，通过 statusUrl 查询处理进度
+            return Result.success(imageService.upload(file));
 
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return Result.error("服务繁忙，请稍后重试");
         } catch (IOException e) {
-            e.printStackTrace();
+            log.error("文件上传失败: {}", file.getOriginalFilename(), e);
             return Result.error("文件上传失败: " + e.getMessage());
         }
     }
+
+    @Operation(summary = "查询图片处理状态及已生成的尺寸")
+    @GetMapping("/{filename}/status")
+    public Result<Map<String, Object>> getImageStatus(@PathVariable String filename) {
+        Map<String, Object> status = imageService.getStatus(filename);
+        return status != null ? Result.success(status) : Result.error("文件名不合法");
+    }
+
+    @Operation(summary = "图片处理队列状态")
+    @GetMapping("/queue")
+    public Result<Map<String, Object>> getQueueMetrics() {
+        return Result.success(imageService.getQueueMetrics());
+    }
 }
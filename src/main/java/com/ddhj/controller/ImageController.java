@@ -0,0 +1,75 @@
+package com.ddhj.controller;
+
+import com.ddhj.service.ImageService;
+import com.ddhj.service.ResponsiveImageService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+@Tag(name = "图片访问")
+@RestController
+@RequestMapping("/images")
+public class ImageController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Resource
+    private ResponsiveImageService responsiveImageService;
+
+    @Operation(summary = "按宽度/质量获取图片，根据 Accept 选择 WebP 或 JPEG")
+    @GetMapping("/{filename}")
+    public void getImage(@PathVariable String filename,
+                         @RequestParam(required = false) Integer w,
+                         @RequestParam(required = false) Integer q,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        ResponsiveImageService.Variant variant = responsiveImageService.resolve(filename, w, q,
+                request.getHeader(HttpHeaders.ACCEPT));
+        if (variant == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // 摘要命名的原图内容不变，可长期缓存，其他图片每次用 ETag 协商；ETag 由原图和参数决定，命中时不必生成派生图
+        response.setHeader(HttpHeaders.ETAG, variant.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, ImageService.isContentAddressed(filename)
+                ? "public, max-age=31536000, immutable" : "public, no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (variant.etag().equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(variant.contentType());
+
+        // 派生图不存在时先生成；打开时刷新访问时间，刚访问过的派生图排在缓存淘汰的最后
+        try (FileChannel channel = responsiveImageService.open(variant)) {
+            long length = channel.size();
+            response.setContentLengthLong(length);
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                // Tomcat 支持时交给 sendfile 零拷贝发送
+                request.setAttribute(SENDFILE_FILENAME, responsiveImageService.fileOf(variant).getAbsolutePath());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, length);
+                return;
+            }
+            // 否则由已打开的通道 transferTo 输出，发送期间派生图被淘汰删除也不影响本次读取
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            for (long position = 0; position < length; ) {
+                position += channel.transferTo(position, length - position, out);
+            }
+        }
+    }
+}
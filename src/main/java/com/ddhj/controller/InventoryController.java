@@ -0,0 +1,39 @@
+package com.ddhj.controller;
+
+import com.ddhj.common.Result;
+import com.ddhj.service.HotInventoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.web.bind.annotation.*;
+
+import javax.annotation.Resource;
+import java.util.Map;
+
+@Tag(name = "热点库存")
+@RestController
+@RequestMapping("/inventory/hot")
+public class InventoryController {
+
+    @Resource
+    private HotInventoryService hotInventoryService;
+
+    @Operation(summary = "获取热点规格内存库存")
+    @GetMapping
+    public Result<Map<Long, Integer>> getCounters() {
+        return Result.success(hotInventoryService.getCounters());
+    }
+
+    @Operation(summary = "开启规格内存库存")
+    @PostMapping("/{specId}")
+    public Result<Void> enable(@PathVariable Long specId) {
+        boolean success = hotInventoryService.enable(specId);
+        return success ? Result.success() : Result.error("规格不存在");
+    }
+
+    @Operation(summary = "关闭规格内存库存")
+    @DeleteMapping("/{specId}")
+    public Result<Void> disable(@PathVariable Long specId) {
+        hotInventoryService.disable(specId);
+        return Result.success();
+    }
+}
@@ -1,35 +1,73 @@
 package com.ddhj.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ddhj.common.CursorPage;
 import com.ddhj.common.Result;
+import com.ddhj.dto.BatchOrderResult;
+import com.ddhj.dto.OrderSummary;
 import com.ddhj.entity.Order;
+import com.ddhj.service.OrderArchiveService;
+import com.ddhj.service.OrderBatchService;
+import com.ddhj.service.OrderExportService;
 import com.ddhj.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @Tag(name = "订单管理")
 @RestController
 @RequestMapping("/orders")
 public class OrderController {
 
+    private static final int MAX_BATCH_SIZE = 2000;
+
     @Resource
     private OrderService orderService;
 
+    @Resource
+    private OrderExportService orderExportService;
+
+    @Resource
+    private OrderBatchService orderBatchService;
+
+    @Resource
+    private OrderArchiveService orderArchiveService;
+
     @Operation(summary = "创建订单")
     @PostMapping
     public Result<String> createOrder(@RequestBody Order order) {
-        boolean success = orderService.createOrder(order);
+        boolean success;
+        try {
+            success = orderService.createOrder(order);
+        } catch (DuplicateKeyException e) {
+            return Result.error("订单号已存在: " + order.getOrderNumber());
+        }
         if (success) {
             return Result.success(order.getOrderNumber());
         }
         return Result.error("创建订单失败");
     }
 
+    @Operation(summary = "批量创建订单（按订单号幂等）")
+    @PostMapping("/batch")
+    public Result<List<BatchOrderResult>> createOrders(@RequestBody List<Order> orders) {
+        if (orders.isEmpty() || orders.size() > MAX_BATCH_SIZE) {
+            return Result.error("每批订单数量必须在 1 到 " + MAX_BATCH_SIZE + " 之间");
+        }
+        return Result.success(orderBatchService.ingest(orders));
+    }
+
     @Operation(summary = "获取订单列表")
     @GetMapping
     public Result<Page<Order>> getOrderList(
@@ -41,6 +79,83 @@ public class OrderController {
         return Result.success(page);
     }
 
+    @Operation(summary = "游标分页获取订单列表")
+    @GetMapping("/cursor")
+    public Result<CursorPage<Order>> getOrderListByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endDate,
+            @RequestParam(defaultValue = "false") Boolean withCount) {
+        if (pageSize <= 0) {
+            return Result.error("每页数量必须大于 0");
+        }
+        try {
+            CursorPage<Order> page = orderService.getOrderListByCursor(cursor, pageSize, startDate, endDate, withCount);
+            return Result.success(page);
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "获取订单摘要列表（不含商品明细）")
+    @GetMapping("/summaries")
+    public Result<Page<OrderSummary>> getOrderSummaries(
+            @RequestParam(defaultValue = "1") Integer pageNum,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endDate) {
+        Page<OrderSummary> page = orderService.getOrderSummaries(pageNum, pageSize, startDate, endDate);
+        return Result.success(page);
+    }
+
+    @Operation(summary = "游标分页获取订单摘要列表（不含商品明细）")
+    @GetMapping("/summaries/cursor")
+    public Result<CursorPage<OrderSummary>> getOrderSummariesByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endDate,
+            @RequestParam(defaultValue = "false") Boolean withCount) {
+        if (pageSize <= 0) {
+            return Result.error("每页数量必须大于 0");
+        }
+        try {
+            CursorPage<OrderSummary> page = orderService.getOrderSummariesByCursor(cursor, pageSize, startDate,
+                    endDate, withCount);
+            return Result.success(page);
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "流式导出订单（CSV/NDJSON）")
+    @GetMapping("/export")
+    public void exportOrders(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endDate,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") Boolean gzip,
+            HttpServletResponse response) throws IOException {
+        if (!"csv".equals(format) && !"ndjson".equals(format)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "format 仅支持 csv 或 ndjson");
+            return;
+        }
+
+        String filename = "orders." + format + (gzip ? ".gz" : "");
+        response.setContentType("csv".equals(format) ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename);
+
+        OutputStream out = response.getOutputStream();
+        if (gzip) {
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024)) {
+                orderExportService.export(startDate, endDate, format, gzipOut);
+            }
+        } else {
+            orderExportService.export(startDate, endDate, format, out);
+        }
+    }
+
     @Operation(summary = "根据ID获取订单详情")
     @GetMapping("/{id}")
     public Result<Order> getOrderById(@PathVariable Long id) {
@@ -55,6 +170,12 @@ public class OrderController {
         return Result.success(order);
     }
 
+    @Operation(summary = "立即归档超过保留期的订单（默认每天凌晨自动执行）")
+    @PostMapping("/archive")
+    public Result<Long> archiveOrders() {
+        return Result.success(orderArchiveService.archive());
+    }
+
     @Operation(summary = "删除订单")
     @DeleteMapping("/{id}")
     public Result<Void> deleteOrder(@PathVariable Long id) {
@@ -1,7 +1,10 @@
 package com.ddhj.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ddhj.common.CursorPage;
 import com.ddhj.common.Result;
+import com.ddhj.dto.ProductCard;
+import com.ddhj.dto.ProductWithSpecs;
 import com.ddhj.entity.Product;
 import com.ddhj.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -16,6 +19,8 @@ import java.util.List;
 @RequestMapping("/products")
 public class ProductController {
 
+    private static final int MAX_BULK_SIZE = 100;
+
     @Resource
     private ProductService productService;
 
@@ -29,6 +34,24 @@ public class ProductController {
         return Result.success(page);
     }
 
+    @Operation(summary = "游标分页获取商品列表")
+    @GetMapping("/cursor")
+    public Result<CursorPage<Product>> getProductListByCursor(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(defaultValue = "false") Boolean withCount) {
+        if (pageSize <= 0) {
+            return Result.error("每页数量必须大于 0");
+        }
+        try {
+            CursorPage<Product> page = productService.getProductListByCursor(categoryId, cursor, pageSize, withCount);
+            return Result.success(page);
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
     @Operation(summary = "获取所有商品（不分页）")
     @GetMapping("/all")
     public Result<List<Product>> getAllProducts() {
@@ -36,6 +59,56 @@ public class ProductController {
         return Result.success(products);
     }
 
+    @Operation(summary = "获取商品卡片列表（只含首图，不含进货价）")
+    @GetMapping("/cards")
+    public Result<Page<ProductCard>> getProductCards(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "1") Integer pageNum,
+            @RequestParam(defaultValue = "10") Integer pageSize) {
+        Page<ProductCard> page = productService.getProductCards(categoryId, pageNum, pageSize);
+        return Result.success(page);
+    }
+
+    @Operation(summary = "游标分页获取商品卡片列表")
+    @GetMapping("/cards/cursor")
+    public Result<CursorPage<ProductCard>> getProductCardsByCursor(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(defaultValue = "false") Boolean withCount) {
+        if (pageSize <= 0) {
+            return Result.error("每页数量必须大于 0");
+        }
+        try {
+            CursorPage<ProductCard> page = productService.getProductCardsByCursor(categoryId, cursor, pageSize,
+                    withCount);
+            return Result.success(page);
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "获取所有商品卡片（不分页）")
+    @GetMapping("/cards/all")
+    public Result<List<ProductCard>> getAllProductCards() {
+        return Result.success(productService.getAllProductCards());
+    }
+
+    @Operation(summary = "批量获取商品及规格（货架页）")
+    @GetMapping("/with-specs")
+    public Result<List<ProductWithSpecs>> getProductsWithSpecs(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(defaultValue = "20") Integer limit) {
+        if (ids != null && ids.size() > MAX_BULK_SIZE) {
+            return Result.error("每次最多查询 " + MAX_BULK_SIZE + " 个商品");
+        }
+        if (limit <= 0 || limit > MAX_BULK_SIZE) {
+            return Result.error("数量必须在 1 到 " + MAX_BULK_SIZE + " 之间");
+        }
+        return Result.success(productService.getProductsWithSpecs(categoryId, ids, limit));
+    }
+
     @Operation(summary = "获取商品详情")
     @GetMapping("/{id}")
     public Result<Product> getProductById(@PathVariable Long id) {
@@ -1,6 +1,12 @@
 package com.ddhj.controller;
 
 import com.ddhj.common.Result;
+import com.ddhj.dto.Dashboard;
+import com.ddhj.dto.HotProduct;
+import com.ddhj.service.DashboardService;
+import com.ddhj.service.LeaderboardService;
+import com.ddhj.service.OrderArchiveService;
+import com.ddhj.service.RevenueRollupService;
 import com.ddhj.service.StatisticsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -20,6 +26,18 @@ public class StatisticsController {
     @Resource
     private StatisticsService statisticsService;
 
+    @Resource
+    private RevenueRollupService revenueRollupService;
+
+    @Resource
+    private DashboardService dashboardService;
+
+    @Resource
+    private LeaderboardService leaderboardService;
+
+    @Resource
+    private OrderArchiveService orderArchiveService;
+
     @Operation(summary = "获取收入统计")
     @GetMapping("/revenue")
     public Result<Map<String, Object>> getRevenueStatistics(
@@ -41,7 +59,7 @@ public class StatisticsController {
 
     @Operation(summary = "获取热销商品榜单")
     @GetMapping("/hot-products")
-    public Result<List<Map<String, Object>>> getHotProducts(
+    public Result<List<HotProduct>> getHotProducts(
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
             @RequestParam(defaultValue = "10") Integer limit) {
@@ -49,7 +67,46 @@ public class StatisticsController {
             startDate = LocalDate.now();
         if (endDate == null)
             endDate = LocalDate.now();
-        List<Map<String, Object>> data = statisticsService.getHotProducts(startDate, endDate, limit);
+        List<HotProduct> data = statisticsService.getHotProducts(startDate, endDate, limit);
         return Result.success(data);
     }
+
+    @Operation(summary = "获取统计看板（收入曲线、当日收入与订单数、热销榜并行查询）")
+    @GetMapping("/dashboard")
+    public Result<Dashboard> getDashboard(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date,
+            @RequestParam(defaultValue = "hour") String mode,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        if (date == null)
+            date = LocalDate.now();
+        if (startDate == null)
+            startDate = date;
+        if (endDate == null)
+            endDate = date;
+        Dashboard dashboard = dashboardService.getDashboard(date, mode, startDate, endDate, limit);
+        return Result.success(dashboard);
+    }
+
+    @Operation(summary = "重建收入汇总数据")
+    @PostMapping("/rollup/rebuild")
+    public Result<Void> rebuildRevenueRollup(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            return Result.error("开始日期不能晚于结束日期");
+        }
+        // 已归档的订单不在订单表中，只重建保留期内的部分，避免把汇总数据清零
+        LocalDate archiveBefore = orderArchiveService.getArchiveBefore();
+        if (endDate.isBefore(archiveBefore)) {
+            return Result.error(archiveBefore + " 之前的订单已归档，无法重建");
+        }
+        if (startDate.isBefore(archiveBefore)) {
+            startDate = archiveBefore;
+        }
+        revenueRollupService.rebuild(startDate, endDate);
+        leaderboardService.rebuild(startDate, endDate);
+        return Result.success();
+    }
 }
@@ -0,0 +1,29 @@
+package com.ddhj.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量下单中单个订单的处理结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOrderResult {
+
+    public static final String CREATED = "created";
+
+    public static final String DUPLICATE = "duplicate";
+
+    public static final String FAILED = "failed";
+
+    private String orderNumber;
+
+    /**
+     * created：已创建；duplicate：订单号已存在，未重复创建；failed：创建失败
+     */
+    private String status;
+
+    private String message;
+}
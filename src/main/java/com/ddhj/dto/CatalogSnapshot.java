@@ -0,0 +1,27 @@
+package com.ddhj.dto;
+
+import com.ddhj.entity.Category;
+import com.ddhj.entity.Product;
+import com.ddhj.entity.Specification;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品目录快照
+ */
+@Data
+public class CatalogSnapshot {
+
+    private String version;
+
+    private List<Category> categories;
+
+    private List<Product> products;
+
+    /**
+     * 商品ID -> 规格列表
+     */
+    private Map<Long, List<Specification>> specifications;
+}
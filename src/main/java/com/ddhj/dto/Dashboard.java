@@ -0,0 +1,30 @@
+package com.ddhj.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 统计看板，各部分并行计算，超时或失败的部分为 null 并在 errors 中说明
+ */
+@Data
+public class Dashboard {
+
+    /**
+     * 收入曲线，结构同 /statistics/revenue
+     */
+    private Map<String, Object> revenue;
+
+    private Double dayRevenue;
+
+    private Long dayOrderCount;
+
+    private List<HotProduct> hotProducts;
+
+    /**
+     * 部分名称 -> 失败原因
+     */
+    private Map<String, String> errors = new TreeMap<>();
+}
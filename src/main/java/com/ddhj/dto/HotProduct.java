@@ -0,0 +1,24 @@
+package com.ddhj.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 热销商品榜单条目
+ */
+@Data
+public class HotProduct {
+
+    private Long productId;
+
+    private String productName;
+
+    private Long categoryId;
+
+    private List<String> images;
+
+    private Double sellPrice;
+
+    private Integer sales;
+}
@@ -0,0 +1,26 @@
+package com.ddhj.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单导出行，items 保留原始 JSON 文本，不做解析
+ */
+@Data
+public class OrderExportRow {
+
+    private Long id;
+
+    private String orderNumber;
+
+    private String items;
+
+    private Double totalAmount;
+
+    private Double paidAmount;
+
+    private String notes;
+
+    private LocalDateTime orderDate;
+}
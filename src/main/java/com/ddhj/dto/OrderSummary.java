@@ -0,0 +1,26 @@
+package com.ddhj.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单列表行，不含 items，需要商品明细时查询订单详情
+ */
+@Data
+public class OrderSummary {
+
+    private Long id;
+
+    private String orderNumber;
+
+    private Double totalAmount;
+
+    private Double paidAmount;
+
+    private String notes;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private LocalDateTime orderDate;
+}
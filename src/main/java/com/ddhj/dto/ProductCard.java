@@ -0,0 +1,27 @@
+package com.ddhj.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 商品列表卡片，只带首图，不含进货价；完整图片列表查询商品详情
+ */
+@Data
+public class ProductCard {
+
+    private Long id;
+
+    private String name;
+
+    private Long categoryId;
+
+    private Double sellPrice;
+
+    /**
+     * 首图，没有图片时为 null
+     */
+    private String cover;
+
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,17 @@
+package com.ddhj.dto;
+
+import com.ddhj.entity.Specification;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 货架页的商品卡片及其规格
+ */
+@Data
+public class ProductWithSpecs {
+
+    private ProductCard product;
+
+    private List<Specification> specifications;
+}
@@ -0,0 +1,17 @@
+package com.ddhj.dto;
+
+import lombok.Data;
+
+/**
+ * 收入分桶统计结果
+ */
+@Data
+public class RevenueBucket {
+
+    /**
+     * 桶序号：小时(0-23)、日(1-31)或月(1-12)
+     */
+    private Integer bucket;
+
+    private Double revenue;
+}
@@ -0,0 +1,31 @@
+package com.ddhj.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 规格ID与数量，批量更新库存时作为 SQL 参数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpecQuantity {
+
+    private Long specId;
+
+    private Integer quantity;
+
+    /**
+     * 按 Map 的遍历顺序转换，有序 Map 的加锁顺序得以保留
+     */
+    public static List<SpecQuantity> of(Map<Long, Integer> quantities) {
+        List<SpecQuantity> rows = new ArrayList<>(quantities.size());
+        quantities.forEach((specId, quantity) -> rows.add(new SpecQuantity(specId, quantity)));
+        return rows;
+    }
+}
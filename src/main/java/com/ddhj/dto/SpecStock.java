@@ -0,0 +1,16 @@
+package com.ddhj.dto;
+
+import lombok.Data;
+
+/**
+ * 规格库存，校验库存和维护缓存时使用，不读取 specs 列
+ */
+@Data
+public class SpecStock {
+
+    private Long id;
+
+    private Long productId;
+
+    private Integer stock;
+}
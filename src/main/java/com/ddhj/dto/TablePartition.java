@@ -0,0 +1,22 @@
+package com.ddhj.dto;
+
+import lombok.Data;
+
+/**
+ * 分区表的一个分区（information_schema.PARTITIONS）
+ */
+@Data
+public class TablePartition {
+
+    private String name;
+
+    /**
+     * 分区上界，如 '2026-11-01 00:00:00' 或 MAXVALUE
+     */
+    private String description;
+
+    /**
+     * 估算行数
+     */
+    private Long tableRows;
+}
@@ -0,0 +1,22 @@
+package com.ddhj.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("image_file")
+public class ImageFile {
+
+    @TableId(type = IdType.INPUT)
+    private String filename;
+
+    private Long size;
+
+    private Integer refCount;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+}
@@ -1,12 +1,11 @@
 package com.ddhj.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
-import com.baomidou.mybatisplus.extension.handlers.JacksonTypeHandler;
+import com.ddhj.config.OrderItemsTypeHandler;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.Data;
 
 import java.time.LocalDateTime;
-import java.util.Map;
 
 @Data
 @TableName(value = "orders", autoResultMap = true)
@@ -17,8 +16,8 @@ public class Order {
 
     private String orderNumber;
 
-    @TableField(typeHandler = JacksonTypeHandler.class)
-    private Map<String, Object> items;
+    @TableField(typeHandler = OrderItemsTypeHandler.class)
+    private OrderItems items;
 
     private Double totalAmount;
 
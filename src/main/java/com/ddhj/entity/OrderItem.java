@@ -0,0 +1,37 @@
+package com.ddhj.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("order_item")
+public class OrderItem {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long orderId;
+
+    private Long productId;
+
+    private Long specId;
+
+    private Integer quantity;
+
+    private Double unitPrice;
+
+    private LocalDateTime orderDate;
+
+    private Integer stockDeferred;
+
+    @TableLogic
+    private Integer isDelete;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,36 @@
+package com.ddhj.entity;
+
+import com.ddhj.common.OrderItemsCodec;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单 items 字段，JSON 结构为 {商品ID: [{规格id, 购买数量, ...}], notes: ...}
+ * <p>
+ * 读写数据库和接口时都经 OrderItemsCodec 按上述结构直接编解码，JSON 格式与历史数据一致。
+ */
+@Data
+@JsonSerialize(using = OrderItemsCodec.Serializer.class)
+@JsonDeserialize(using = OrderItemsCodec.Deserializer.class)
+public class OrderItems {
+
+    /**
+     * 商品ID -> 购买的规格，保持原有顺序
+     */
+    private Map<Long, List<OrderLine>> products = new LinkedHashMap<>();
+
+    /**
+     * notes 等非商品字段，以及键不是商品ID或值不是数组的字段，原样保存
+     */
+    private Map<String, Object> extra = new LinkedHashMap<>();
+
+    public List<OrderLine> lines(Long productId) {
+        return products.computeIfAbsent(productId, k -> new ArrayList<>());
+    }
+}
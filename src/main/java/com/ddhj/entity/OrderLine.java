@@ -0,0 +1,60 @@
+package com.ddhj.entity;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 订单 items 中某个商品下的一条购买规格，如 {"规格id": 12, "购买数量": 2, "规格名称": "..."}
+ */
+@Data
+public class OrderLine {
+
+    public static final String SPEC_ID = "规格id";
+
+    public static final String QUANTITY = "购买数量";
+
+    public static final String UNIT_PRICE = "单价";
+
+    private Long specId;
+
+    private Integer quantity;
+
+    /**
+     * 规格名称等其他字段原样保存；规格id、购买数量无法识别时也以原值放在这里
+     */
+    private Map<String, Object> extra;
+
+    public void putExtra(String name, Object value) {
+        if (extra == null) {
+            extra = new LinkedHashMap<>(4);
+        }
+        extra.put(name, value);
+    }
+
+    /**
+     * 下单时记录的单价，没有记录或不是数值时返回 null
+     */
+    public Double getUnitPrice() {
+        Object value = extra == null ? null : extra.get(UNIT_PRICE);
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof String text) {
+            try {
+                return Double.valueOf(text.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 规格id 或购买数量格式错误
+     */
+    public boolean isMalformed() {
+        return quantity == null || extra != null && (extra.containsKey(SPEC_ID) || extra.containsKey(QUANTITY));
+    }
+}
@@ -0,0 +1,20 @@
+package com.ddhj.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("product_sales_daily")
+public class ProductSalesDaily {
+
+    private LocalDate statDate;
+
+    private Long productId;
+
+    private Integer sales;
+
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,21 @@
+package com.ddhj.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("revenue_daily")
+public class RevenueDaily {
+
+    @TableId(type = IdType.INPUT)
+    private LocalDate statDate;
+
+    private Double revenue;
+
+    private Integer orderCount;
+
+    private LocalDateTime updateTime;
+}
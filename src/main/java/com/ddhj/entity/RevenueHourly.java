@@ -0,0 +1,20 @@
+package com.ddhj.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("revenue_hourly")
+public class RevenueHourly {
+
+    @TableId(type = IdType.INPUT)
+    private LocalDateTime statHour;
+
+    private Double revenue;
+
+    private Integer orderCount;
+
+    private LocalDateTime updateTime;
+}
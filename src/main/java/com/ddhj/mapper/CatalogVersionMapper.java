@@ -0,0 +1,25 @@
+package com.ddhj.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * 商品目录版本，各实例共用一行，目录快照的 ETag 由其生成
+ */
+@Mapper
+public interface CatalogVersionMapper {
+
+    /**
+     * 当前版本，尚未递增过时返回 null
+     */
+    @Select("SELECT version FROM catalog_version WHERE id = 1")
+    Long selectVersion();
+
+    /**
+     * 递增版本，行不存在时插入
+     */
+    @Insert("INSERT INTO catalog_version (id, version) VALUES (1, 1) "
+            + "ON DUPLICATE KEY UPDATE version = version + 1")
+    int increment();
+}
@@ -0,0 +1,38 @@
+package com.ddhj.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ddhj.entity.ImageFile;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface ImageFileMapper extends BaseMapper<ImageFile> {
+
+    /**
+     * 登记上传的文件，已存在时刷新更新时间，避免刚上传的文件被回收
+     */
+    @Insert("INSERT INTO image_file (filename, size) VALUES (#{filename}, #{size}) "
+            + "ON DUPLICATE KEY UPDATE update_time = CURRENT_TIMESTAMP")
+    int touch(@Param("filename") String filename, @Param("size") Long size);
+
+    /**
+     * 调整引用计数，文件未登记时按 delta 登记
+     */
+    @Insert("INSERT INTO image_file (filename, size, ref_count) VALUES (#{filename}, #{size}, #{delta}) "
+            + "ON DUPLICATE KEY UPDATE ref_count = ref_count + #{delta}")
+    int addRefCount(@Param("filename") String filename, @Param("size") Long size, @Param("delta") Integer delta);
+
+    /**
+     * 查询无引用且在 before 之前未被再次上传的文件
+     */
+    @Select("SELECT filename FROM image_file WHERE ref_count <= 0 AND update_time < #{before} LIMIT #{limit}")
+    List<String> selectUnreferenced(@Param("before") LocalDateTime before, @Param("limit") Integer limit);
+
+    /**
+     * 仍然满足回收条件时删除记录
+     */
+    @Delete("DELETE FROM image_file WHERE filename = #{filename} AND ref_count <= 0 AND update_time < #{before}")
+    int deleteUnreferenced(@Param("filename") String filename, @Param("before") LocalDateTime before);
+}
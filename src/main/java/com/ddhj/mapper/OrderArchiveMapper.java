@@ -0,0 +1,73 @@
+package com.ddhj.mapper;
+
+import com.ddhj.dto.TablePartition;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单归档与订单表分区维护
+ */
+@Mapper
+public interface OrderArchiveMapper {
+
+    /**
+     * 查询下单日期早于 before 的订单ID（包含已删除的订单），按ID升序
+     */
+    @Select("SELECT id FROM orders WHERE order_date < #{before} AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Long> selectIdsBefore(@Param("before") LocalDateTime before,
+                               @Param("afterId") Long afterId,
+                               @Param("limit") Integer limit);
+
+    /**
+     * 复制订单到归档表，order_date 条件使查询只访问已过保留期的分区
+     */
+    @Insert("<script>"
+            + "INSERT INTO orders_archive (id, order_number, items, total_amount, paid_amount, notes, order_date, "
+            + "is_delete, create_time, update_time) "
+            + "SELECT id, order_number, items, total_amount, paid_amount, notes, order_date, "
+            + "is_delete, create_time, update_time FROM orders WHERE order_date &lt; #{before} AND id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    int copyOrders(@Param("before") LocalDateTime before, @Param("ids") List<Long> ids);
+
+    @Insert("<script>"
+            + "INSERT INTO order_item_archive (id, order_id, product_id, spec_id, quantity, unit_price, order_date, "
+            + "is_delete, create_time, update_time) "
+            + "SELECT id, order_id, product_id, spec_id, quantity, unit_price, order_date, "
+            + "is_delete, create_time, update_time FROM order_item WHERE order_id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    int copyItems(@Param("ids") List<Long> ids);
+
+    @Delete("<script>"
+            + "DELETE FROM orders WHERE order_date &lt; #{before} AND id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    int deleteOrders(@Param("before") LocalDateTime before, @Param("ids") List<Long> ids);
+
+    @Delete("<script>"
+            + "DELETE FROM order_item WHERE order_id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    int deleteItems(@Param("ids") List<Long> ids);
+
+    /**
+     * 订单表的分区，按上界升序；未分区时返回空列表（H2 等不支持分区的数据库会抛出异常）
+     */
+    @Select("SELECT PARTITION_NAME AS name, PARTITION_DESCRIPTION AS description, TABLE_ROWS AS table_rows "
+            + "FROM information_schema.PARTITIONS "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'orders' AND PARTITION_NAME IS NOT NULL "
+            + "ORDER BY PARTITION_ORDINAL_POSITION")
+    List<TablePartition> selectOrderPartitions();
+
+    /**
+     * 将若干相邻分区重组为新的分区，分区定义由调用方生成
+     *
+     * @param partitions  被重组的分区名，逗号分隔
+     * @param definitions 新分区定义，如 PARTITION p202611 VALUES LESS THAN ('2026-12-01')
+     */
+    @Update("ALTER TABLE orders REORGANIZE PARTITION ${partitions} INTO (${definitions})")
+    void reorganizeOrderPartitions(@Param("partitions") String partitions, @Param("definitions") String definitions);
+}
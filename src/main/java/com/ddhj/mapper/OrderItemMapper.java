@@ -0,0 +1,52 @@
+package com.ddhj.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ddhj.entity.OrderItem;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+@Mapper
+public interface OrderItemMapper extends BaseMapper<OrderItem> {
+
+    /**
+     * 批量插入订单明细，单价取订单 items 中记录的单价
+     *
+     * @param currentPrice 没有记录单价时是否取当前商品售价；补录历史订单时当前售价不一定是下单时的价格，应留空
+     */
+    @Insert("<script>"
+            + "INSERT INTO order_item (order_id, product_id, spec_id, quantity, unit_price, order_date, stock_deferred) VALUES "
+            + "<foreach collection='items' item='item' separator=','>"
+            + "(#{item.orderId}, #{item.productId}, #{item.specId}, #{item.quantity}, "
+            + "<choose><when test='item.unitPrice != null or !currentPrice'>#{item.unitPrice}</when>"
+            + "<otherwise>(SELECT sell_price FROM product WHERE id = #{item.productId})</otherwise></choose>, "
+            + "#{item.orderDate}, #{item.stockDeferred})"
+            + "</foreach>"
+            + "</script>")
+    int insertBatch(@Param("items") List<OrderItem> items, @Param("currentPrice") boolean currentPrice);
+
+    /**
+     * 在给定订单中找出已有明细的订单ID
+     */
+    @Select("<script>"
+            + "SELECT DISTINCT order_id FROM order_item WHERE order_id IN "
+            + "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    List<Long> selectOrderIdsWithItems(@Param("orderIds") List<Long> orderIds);
+
+    /**
+     * 锁定一批待回写库存的明细，已被其他事务锁定的行跳过
+     */
+    @Select("SELECT id, product_id, spec_id, quantity FROM order_item WHERE stock_deferred = 1 "
+            + "ORDER BY id LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<OrderItem> selectStockDeferredForUpdate(@Param("limit") Integer limit);
+
+    @Update("<script>"
+            + "UPDATE order_item SET stock_deferred = 0 WHERE id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    int clearStockDeferred(@Param("ids") List<Long> ids);
+
+    @Select("SELECT COALESCE(SUM(quantity), 0) FROM order_item WHERE spec_id = #{specId} AND stock_deferred = 1")
+    int sumStockDeferredBySpecId(@Param("specId") Long specId);
+}
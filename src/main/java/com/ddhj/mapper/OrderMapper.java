@@ -1,9 +1,106 @@
 package com.ddhj.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ddhj.dto.OrderExportRow;
+import com.ddhj.dto.OrderSummary;
+import com.ddhj.config.OrderItemsTypeHandler;
 import com.ddhj.entity.Order;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface OrderMapper extends BaseMapper<Order> {
+
+    /**
+     * 多行插入订单并回填自增ID
+     */
+    @Insert("<script>"
+            + "INSERT INTO orders (order_number, items, total_amount, paid_amount, notes, order_date) VALUES "
+            + "<foreach collection='list' item='order' separator=','>"
+            + "(#{order.orderNumber}, #{order.items,typeHandler=com.ddhj.config.OrderItemsTypeHandler}, "
+            + "#{order.totalAmount}, #{order.paidAmount}, #{order.notes}, #{order.orderDate})"
+            + "</foreach>"
+            + "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insertBatch(List<Order> orders);
+
+    /**
+     * 分页查询订单摘要，按下单日期倒序，不读取 items 列
+     */
+    @Select("<script>"
+            + "SELECT id, order_number, total_amount, paid_amount, notes, order_date FROM orders "
+            + "WHERE is_delete = 0 "
+            + "<if test='startDate != null'>AND order_date &gt;= #{startDate} </if>"
+            + "<if test='endDate != null'>AND order_date &lt;= #{endDate} </if>"
+            + "ORDER BY order_date DESC"
+            + "</script>")
+    Page<OrderSummary> selectSummaryPage(Page<OrderSummary> page,
+                                         @Param("startDate") LocalDateTime startDate,
+                                         @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * 按 (下单日期, id) 倒序查询游标之后的订单摘要
+     *
+     * @param cursorTime 为 null 时从头查询
+     */
+    @Select("<script>"
+            + "SELECT id, order_number, total_amount, paid_amount, notes, order_date FROM orders "
+            + "WHERE is_delete = 0 "
+            + "<if test='startDate != null'>AND order_date &gt;= #{startDate} </if>"
+            + "<if test='endDate != null'>AND order_date &lt;= #{endDate} </if>"
+            + "<if test='cursorTime != null'>AND (order_date &lt; #{cursorTime} "
+            + "OR (order_date = #{cursorTime} AND id &lt; #{cursorId})) </if>"
+            + "ORDER BY order_date DESC, id DESC LIMIT #{limit}"
+            + "</script>")
+    List<OrderSummary> selectSummaries(@Param("startDate") LocalDateTime startDate,
+                                       @Param("endDate") LocalDateTime endDate,
+                                       @Param("cursorTime") LocalDateTime cursorTime,
+                                       @Param("cursorId") Long cursorId,
+                                       @Param("limit") Integer limit);
+
+    /**
+     * 逐行流式读取订单，需在事务内遍历完毕
+     * 连接参数 useCursorFetch=true 时 MySQL 驱动按 fetchSize 分批读取，而不是缓存整个结果集
+     */
+    @Select("<script>"
+            + "SELECT id, order_number, items, total_amount, paid_amount, notes, order_date FROM orders "
+            + "WHERE is_delete = 0 "
+            + "<if test='startDate != null'>AND order_date &gt;= #{startDate} </if>"
+            + "<if test='endDate != null'>AND order_date &lt;= #{endDate} </if>"
+            + "ORDER BY order_date, id"
+            + "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    Cursor<OrderExportRow> selectExportCursor(@Param("startDate") LocalDateTime startDate,
+                                              @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * 按ID查询已归档的订单
+     */
+    @Select("SELECT id, order_number, items, total_amount, paid_amount, notes, order_date, is_delete, create_time, update_time "
+            + "FROM orders_archive WHERE id = #{id} AND is_delete = 0")
+    @Results({
+            @Result(column = "items", property = "items", typeHandler = OrderItemsTypeHandler.class)
+    })
+    Order selectArchivedById(@Param("id") Long id);
+
+    /**
+     * 按订单号查询已归档的订单
+     */
+    @Select("SELECT id, order_number, items, total_amount, paid_amount, notes, order_date, is_delete, create_time, update_time "
+            + "FROM orders_archive WHERE order_number = #{orderNumber} AND is_delete = 0 LIMIT 1")
+    @Results({
+            @Result(column = "items", property = "items", typeHandler = OrderItemsTypeHandler.class)
+    })
+    Order selectArchivedByNumber(@Param("orderNumber") String orderNumber);
 }
@@ -0,0 +1,47 @@
+package com.ddhj.mapper;
+
+import com.ddhj.entity.Order;
+import org.apache.ibatis.annotations.*;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 订单号登记表，订单号的全局唯一由其主键保证，包含已删除和已归档的订单
+ */
+@Mapper
+public interface OrderNumberRegistryMapper {
+
+    /**
+     * 登记订单号，任一订单号已存在时抛出 DuplicateKeyException，需与订单在同一事务中执行
+     */
+    @Insert("<script>"
+            + "INSERT INTO order_number_registry (order_number, order_date) VALUES "
+            + "<foreach collection='orders' item='order' separator=','>(#{order.orderNumber}, #{order.orderDate})</foreach>"
+            + "</script>")
+    int insertBatch(@Param("orders") List<Order> orders);
+
+    /**
+     * 查询已登记的订单号
+     */
+    @Select("<script>"
+            + "SELECT order_number FROM order_number_registry WHERE order_number IN "
+            + "<foreach collection='orderNumbers' item='orderNumber' open='(' separator=',' close=')'>#{orderNumber}</foreach>"
+            + "</script>")
+    List<String> selectExisting(@Param("orderNumbers") Collection<String> orderNumbers);
+
+    /**
+     * 形如本节点生成的订单号（23 位、第 15~17 位为节点号），按订单号倒序取 before 之前的一批
+     * 订单号生成器启动时从其中格式合法的最大一个之后继续编号
+     *
+     * @param before 上一批的最后一个订单号，首批传 null
+     */
+    @Select("<script>"
+            + "SELECT order_number FROM order_number_registry "
+            + "WHERE order_number &gt;= '0' AND order_number &lt; "
+            + "<choose><when test='before != null'>#{before}</when><otherwise>':'</otherwise></choose> "
+            + "AND CHAR_LENGTH(order_number) = 23 AND SUBSTRING(order_number, 15, 3) = #{node} "
+            + "ORDER BY order_number DESC LIMIT #{limit}"
+            + "</script>")
+    List<String> selectGenerated(@Param("node") String node, @Param("before") String before, @Param("limit") int limit);
+}
@@ -1,9 +1,75 @@
 package com.ddhj.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.extension.handlers.JacksonTypeHandler;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ddhj.config.CoverImageTypeHandler;
+import com.ddhj.dto.ProductCard;
 import com.ddhj.entity.Product;
-import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Mapper
 public interface ProductMapper extends BaseMapper<Product> {
+
+    /**
+     * 锁住商品行并读取图片，修改或删除商品时据此计算图片引用的增减，并发修改同一商品时依次执行
+     */
+    @Select("SELECT id, images FROM product WHERE id = #{id} AND is_delete = 0 FOR UPDATE")
+    @Results({
+            @Result(column = "images", property = "images", typeHandler = JacksonTypeHandler.class)
+    })
+    Product selectImagesForUpdate(@Param("id") Long id);
+
+    /**
+     * 分页查询商品卡片，按创建时间倒序
+     *
+     * @param categoryId 为 null 或不大于 0 时查询全部分类
+     */
+    @Select("<script>"
+            + "SELECT id, name, category_id, sell_price, images AS cover, create_time FROM product "
+            + "WHERE is_delete = 0 "
+            + "<if test='categoryId != null and categoryId > 0'>AND category_id = #{categoryId} </if>"
+            + "ORDER BY create_time DESC"
+            + "</script>")
+    @Results({
+            @Result(column = "cover", property = "cover", typeHandler = CoverImageTypeHandler.class)
+    })
+    Page<ProductCard> selectCardPage(Page<ProductCard> page, @Param("categoryId") Long categoryId);
+
+    /**
+     * 按 (创建时间, id) 倒序查询游标之后的商品卡片
+     *
+     * @param cursorTime 为 null 时从头查询
+     * @param limit      为 null 时不限制条数
+     */
+    @Select("<script>"
+            + "SELECT id, name, category_id, sell_price, images AS cover, create_time FROM product "
+            + "WHERE is_delete = 0 "
+            + "<if test='categoryId != null and categoryId > 0'>AND category_id = #{categoryId} </if>"
+            + "<if test='cursorTime != null'>AND (create_time &lt; #{cursorTime} "
+            + "OR (create_time = #{cursorTime} AND id &lt; #{cursorId})) </if>"
+            + "ORDER BY create_time DESC, id DESC"
+            + "<if test='limit != null'> LIMIT #{limit}</if>"
+            + "</script>")
+    @Results({
+            @Result(column = "cover", property = "cover", typeHandler = CoverImageTypeHandler.class)
+    })
+    List<ProductCard> selectCards(@Param("categoryId") Long categoryId,
+                                  @Param("cursorTime") LocalDateTime cursorTime,
+                                  @Param("cursorId") Long cursorId,
+                                  @Param("limit") Integer limit);
+
+    @Select("<script>"
+            + "SELECT id, name, category_id, sell_price, images AS cover, create_time FROM product "
+            + "WHERE is_delete = 0 AND id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    @Results({
+            @Result(column = "cover", property = "cover", typeHandler = CoverImageTypeHandler.class)
+    })
+    List<ProductCard> selectCardsByIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,54 @@
+package com.ddhj.mapper;
+
+import com.ddhj.entity.ProductSalesDaily;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 商品日销量表主键为 (stat_date, product_id)，不继承 BaseMapper
+ */
+@Mapper
+public interface ProductSalesDailyMapper {
+
+    /**
+     * 累加商品日销量，不存在时插入；调用方需按日期、商品ID排序以保证加锁顺序一致
+     */
+    @Insert("<script>"
+            + "INSERT INTO product_sales_daily (stat_date, product_id, sales) VALUES "
+            + "<foreach collection='rows' item='row' separator=','>(#{row.statDate}, #{row.productId}, #{row.sales})</foreach> "
+            + "ON DUPLICATE KEY UPDATE sales = sales + VALUES(sales)"
+            + "</script>")
+    int accumulateBatch(@Param("rows") List<ProductSalesDaily> rows);
+
+    /**
+     * 读取 [startDate, endDate) 内有销量的记录
+     */
+    @Select("SELECT stat_date, product_id, sales FROM product_sales_daily "
+            + "WHERE stat_date >= #{startDate} AND stat_date < #{endDate} AND sales > 0")
+    List<ProductSalesDaily> selectRange(@Param("startDate") LocalDate startDate,
+                                        @Param("endDate") LocalDate endDate);
+
+    /**
+     * 锁住 [startDate, endDate) 内的日销量行及其间隙，需在事务中调用
+     */
+    @Select("SELECT stat_date FROM product_sales_daily WHERE stat_date >= #{startDate} AND stat_date < #{endDate} FOR UPDATE")
+    List<LocalDate> lockRange(@Param("startDate") LocalDate startDate,
+                              @Param("endDate") LocalDate endDate);
+
+    @Delete("DELETE FROM product_sales_daily WHERE stat_date >= #{startDate} AND stat_date < #{endDate}")
+    int deleteRange(@Param("startDate") LocalDate startDate,
+                    @Param("endDate") LocalDate endDate);
+
+    /**
+     * 从订单明细重新汇总 [startTime, endTime) 内的商品日销量
+     */
+    @Insert("INSERT INTO product_sales_daily (stat_date, product_id, sales) "
+            + "SELECT DATE(order_date), product_id, SUM(quantity) FROM order_item "
+            + "WHERE is_delete = 0 AND order_date >= #{startTime} AND order_date < #{endTime} "
+            + "GROUP BY DATE(order_date), product_id")
+    int rebuildRange(@Param("startTime") LocalDateTime startTime,
+                     @Param("endTime") LocalDateTime endTime);
+}
@@ -0,0 +1,78 @@
+package com.ddhj.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ddhj.dto.RevenueBucket;
+import com.ddhj.entity.RevenueDaily;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface RevenueDailyMapper extends BaseMapper<RevenueDaily> {
+
+    /**
+     * 累加指定日期的收入与订单数，不存在时插入
+     */
+    @Insert("INSERT INTO revenue_daily (stat_date, revenue, order_count) "
+            + "VALUES (#{statDate}, #{revenue}, #{orderCount}) "
+            + "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), order_count = order_count + VALUES(order_count)")
+    int accumulate(@Param("statDate") LocalDate statDate,
+                   @Param("revenue") Double revenue,
+                   @Param("orderCount") Integer orderCount);
+
+    /**
+     * 按日读取收入，日期区间为 [startDate, endDate)
+     */
+    @Select("SELECT DAY(stat_date) AS bucket, revenue FROM revenue_daily "
+            + "WHERE stat_date >= #{startDate} AND stat_date < #{endDate}")
+    List<RevenueBucket> selectRevenueByDay(@Param("startDate") LocalDate startDate,
+                                           @Param("endDate") LocalDate endDate);
+
+    /**
+     * 按月汇总收入，日期区间为 [startDate, endDate)
+     */
+    @Select("SELECT MONTH(stat_date) AS bucket, SUM(revenue) AS revenue FROM revenue_daily "
+            + "WHERE stat_date >= #{startDate} AND stat_date < #{endDate} "
+            + "GROUP BY MONTH(stat_date)")
+    List<RevenueBucket> sumRevenueByMonth(@Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate);
+
+    /**
+     * 汇总收入，日期区间为 [startDate, endDate)
+     */
+    @Select("SELECT COALESCE(SUM(revenue), 0) FROM revenue_daily "
+            + "WHERE stat_date >= #{startDate} AND stat_date < #{endDate}")
+    Double sumRevenue(@Param("startDate") LocalDate startDate,
+                      @Param("endDate") LocalDate endDate);
+
+    /**
+     * 汇总订单数，日期区间为 [startDate, endDate)
+     */
+    @Select("SELECT COALESCE(SUM(order_count), 0) FROM revenue_daily "
+            + "WHERE stat_date >= #{startDate} AND stat_date < #{endDate}")
+    Long sumOrderCount(@Param("startDate") LocalDate startDate,
+                       @Param("endDate") LocalDate endDate);
+
+    /**
+     * 锁住 [startDate, endDate) 内的汇总行及其间隙，需在事务中调用
+     */
+    @Select("SELECT stat_date FROM revenue_daily WHERE stat_date >= #{startDate} AND stat_date < #{endDate} FOR UPDATE")
+    List<LocalDate> lockRange(@Param("startDate") LocalDate startDate,
+                              @Param("endDate") LocalDate endDate);
+
+    @Delete("DELETE FROM revenue_daily WHERE stat_date >= #{startDate} AND stat_date < #{endDate}")
+    int deleteRange(@Param("startDate") LocalDate startDate,
+                    @Param("endDate") LocalDate endDate);
+
+    /**
+     * 从订单表重新汇总 [startTime, endTime) 内的日收入
+     */
+    @Insert("INSERT INTO revenue_daily (stat_date, revenue, order_count) "
+            + "SELECT DATE(order_date), SUM(paid_amount), COUNT(*) FROM orders "
+            + "WHERE is_delete = 0 AND order_date >= #{startTime} AND order_date < #{endTime} "
+            + "GROUP BY DATE(order_date)")
+    int rebuildRange(@Param("startTime") LocalDateTime startTime,
+                     @Param("endTime") LocalDateTime endTime);
+}
@@ -0,0 +1,52 @@
+package com.ddhj.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ddhj.dto.RevenueBucket;
+import com.ddhj.entity.RevenueHourly;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface RevenueHourlyMapper extends BaseMapper<RevenueHourly> {
+
+    /**
+     * 累加指定小时的收入与订单数，不存在时插入
+     */
+    @Insert("INSERT INTO revenue_hourly (stat_hour, revenue, order_count) "
+            + "VALUES (#{statHour}, #{revenue}, #{orderCount}) "
+            + "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), order_count = order_count + VALUES(order_count)")
+    int accumulate(@Param("statHour") LocalDateTime statHour,
+                   @Param("revenue") Double revenue,
+                   @Param("orderCount") Integer orderCount);
+
+    /**
+     * 按小时读取收入，时间区间为 [startTime, endTime)
+     */
+    @Select("SELECT HOUR(stat_hour) AS bucket, revenue FROM revenue_hourly "
+            + "WHERE stat_hour >= #{startTime} AND stat_hour < #{endTime}")
+    List<RevenueBucket> selectRevenueByHour(@Param("startTime") LocalDateTime startTime,
+                                            @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 锁住 [startTime, endTime) 内的汇总行及其间隙，需在事务中调用
+     */
+    @Select("SELECT stat_hour FROM revenue_hourly WHERE stat_hour >= #{startTime} AND stat_hour < #{endTime} FOR UPDATE")
+    List<LocalDateTime> lockRange(@Param("startTime") LocalDateTime startTime,
+                                  @Param("endTime") LocalDateTime endTime);
+
+    @Delete("DELETE FROM revenue_hourly WHERE stat_hour >= #{startTime} AND stat_hour < #{endTime}")
+    int deleteRange(@Param("startTime") LocalDateTime startTime,
+                    @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 从订单表重新汇总 [startTime, endTime) 内的小时收入
+     */
+    @Insert("INSERT INTO revenue_hourly (stat_hour, revenue, order_count) "
+            + "SELECT DATE_FORMAT(order_date, '%Y-%m-%d %H:00:00'), SUM(paid_amount), COUNT(*) FROM orders "
+            + "WHERE is_delete = 0 AND order_date >= #{startTime} AND order_date < #{endTime} "
+            + "GROUP BY DATE_FORMAT(order_date, '%Y-%m-%d %H:00:00')")
+    int rebuildRange(@Param("startTime") LocalDateTime startTime,
+                     @Param("endTime") LocalDateTime endTime);
+}
@@ -1,9 +1,80 @@
 package com.ddhj.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ddhj.dto.SpecQuantity;
+import com.ddhj.dto.SpecStock;
 import com.ddhj.entity.Specification;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface SpecificationMapper extends BaseMapper<Specification> {
+
+    @Select("SELECT id, product_id, stock FROM specification WHERE id = #{id} AND is_delete = 0")
+    SpecStock selectStockById(@Param("id") Long id);
+
+    /**
+     * 读取库存并锁住规格行，需在事务中调用
+     */
+    @Select("SELECT id, product_id, stock FROM specification WHERE id = #{id} AND is_delete = 0 FOR UPDATE")
+    SpecStock selectStockByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * 库存充足时扣减库存
+     *
+     * @return 1 扣减成功，0 规格不存在或库存不足
+     */
+    @Update("UPDATE specification SET stock = stock - #{quantity} "
+            + "WHERE id = #{specId} AND stock >= #{quantity} AND is_delete = 0")
+    int deductStock(@Param("specId") Long specId, @Param("quantity") Integer quantity);
+
+    /**
+     * 批量扣减库存，按规格ID顺序加锁；只扣减库存充足的规格
+     *
+     * @param quantities 规格ID -> 扣减数量
+     * @return 扣减成功的规格数
+     */
+    default int deductStockBatch(Map<Long, Integer> quantities) {
+        return deductStockRows(SpecQuantity.of(quantities));
+    }
+
+    /**
+     * 见 {@link #deductStockBatch(Map)}；以列表传参，任意 Map 实现都可以转换后传入
+     */
+    @Update("<script>"
+            + "UPDATE specification SET stock = stock - CASE id "
+            + "<foreach collection='rows' item='row'>WHEN #{row.specId} THEN #{row.quantity} </foreach>"
+            + "END WHERE is_delete = 0 AND id IN "
+            + "<foreach collection='rows' item='row' open='(' separator=',' close=')'>#{row.specId}</foreach>"
+            + " AND stock &gt;= CASE id "
+            + "<foreach collection='rows' item='row'>WHEN #{row.specId} THEN #{row.quantity} </foreach>"
+            + "END ORDER BY id"
+            + "</script>")
+    int deductStockRows(@Param("rows") List<SpecQuantity> rows);
+
+    /**
+     * 无条件扣减库存，用于回写热点规格在内存中已预留的库存
+     *
+     * @param quantities 规格ID -> 扣减数量
+     */
+    default int applyStockDeduction(Map<Long, Integer> quantities) {
+        return applyStockDeductionRows(SpecQuantity.of(quantities));
+    }
+
+    /**
+     * 见 {@link #applyStockDeduction(Map)}
+     */
+    @Update("<script>"
+            + "UPDATE specification SET stock = stock - CASE id "
+            + "<foreach collection='rows' item='row'>WHEN #{row.specId} THEN #{row.quantity} </foreach>"
+            + "END WHERE id IN "
+            + "<foreach collection='rows' item='row' open='(' separator=',' close=')'>#{row.specId}</foreach>"
+            + " ORDER BY id"
+            + "</script>")
+    int applyStockDeductionRows(@Param("rows") List<SpecQuantity> rows);
 }
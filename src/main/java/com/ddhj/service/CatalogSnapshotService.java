@@ -0,0 +1,229 @@
+package com.ddhj.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ddhj.common.CatalogChangedEvent;
+import com.ddhj.common.Result;
+import com.ddhj.dto.CatalogSnapshot;
+import com.ddhj.entity.Category;
+import com.ddhj.entity.Product;
+import com.ddhj.entity.Specification;
+import com.ddhj.mapper.CatalogVersionMapper;
+import com.ddhj.mapper.CategoryMapper;
+import com.ddhj.mapper.ProductMapper;
+import com.ddhj.mapper.SpecificationMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 商品目录快照
+ * <p>
+ * 目录写入后只递增版本号，快照在下一次请求时按需重建并缓存序列化结果，
+ * 版本未变化时直接复用，客户端可凭 ETag 获得 304。
+ * 版本号保存在 catalog_version 表中，各实例共用，ETag 在实例之间和重启前后保持一致；
+ * 各实例每 ddhj.catalog.version-check-interval 重新读取一次，其他实例的修改在该间隔内生效。
+ * 下单引起的库存变化不立即递增版本，每 ddhj.catalog.stock-refresh-interval 最多递增一次，
+ * 否则每笔订单都会使快照失效，下单期间客户端几乎拿不到 304。
+ */
+@Service
+public class CatalogSnapshotService {
+
+    /**
+     * 最近一次从 catalog_version 读到的版本号
+     */
+    private volatile long version = -1;
+
+    private volatile long versionCheckedAt;
+
+    /**
+     * 上次递增版本后是否有未体现在快照中的库存变化
+     */
+    private final AtomicBoolean stockChanged = new AtomicBoolean();
+
+    private volatile Payload payload;
+
+    /**
+     * 重建时会查询数据库，用 ReentrantLock 而不是 synchronized，虚拟线程等待时不会钉住载体线程
+     */
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    @Resource
+    private CategoryMapper categoryMapper;
+
+    @Resource
+    private ProductMapper productMapper;
+
+    @Resource
+    private SpecificationMapper specificationMapper;
+
+    @Resource
+    private CatalogVersionMapper catalogVersionMapper;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate requiresNew;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Value("${ddhj.catalog.version-check-interval:1000}")
+    private long versionCheckInterval;
+
+    @PostConstruct
+    public void init() {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 目录写入的事务提交后递增版本
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.isStockOnly()) {
+            stockChanged.set(true);
+        } else {
+            incrementVersion();
+        }
+    }
+
+    /**
+     * 合并期间有库存变化时递增版本
+     */
+    @Scheduled(fixedDelayString = "${ddhj.catalog.stock-refresh-interval:30000}")
+    public void refreshStock() {
+        if (stockChanged.getAndSet(false)) {
+            incrementVersion();
+        }
+    }
+
+    public String getCurrentEtag() {
+        return etagOf(versionOf(currentVersion()));
+    }
+
+    /**
+     * 获取当前版本的快照，版本变化后首次调用时重建
+     */
+    public Payload getPayload() {
+        Payload current = payload;
+        if (current != null && current.version == currentVersion()) {
+            return current;
+        }
+        buildLock.lock();
+        try {
+            current = payload;
+            long latest = currentVersion();
+            if (current == null || current.version != latest) {
+                current = build(latest);
+                payload = current;
+            }
+            return current;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private Payload build(long snapshotVersion) {
+        LambdaQueryWrapper<Category> categoryWrapper = new LambdaQueryWrapper<>();
+        categoryWrapper.orderByAsc(Category::getSortOrder)
+                .orderByAsc(Category::getCreateTime);
+        List<Category> categories = categoryMapper.selectList(categoryWrapper);
+
+        LambdaQueryWrapper<Product> productWrapper = new LambdaQueryWrapper<>();
+        productWrapper.orderByDesc(Product::getCreateTime);
+        List<Product> products = productMapper.selectList(productWrapper);
+
+        Map<Long, List<Specification>> specifications = specificationMapper.selectList(null).stream()
+                .collect(Collectors.groupingBy(Specification::getProductId));
+
+        CatalogSnapshot snapshot = new CatalogSnapshot();
+        snapshot.setVersion(versionOf(snapshotVersion));
+        snapshot.setCategories(categories);
+        snapshot.setProducts(products);
+        snapshot.setSpecifications(specifications);
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(Result.success(snapshot));
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            }
+            return new Payload(snapshotVersion, etagOf(snapshot.getVersion()), json, out.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 距上次读取超过 versionCheckInterval 时重新读取共享版本号
+     */
+    private long currentVersion() {
+        if (System.currentTimeMillis() - versionCheckedAt >= versionCheckInterval) {
+            reloadVersion();
+        }
+        return version;
+    }
+
+    /**
+     * 在事务提交后调用，此时原事务的连接可能仍绑定在线程上，递增需在新事务中执行才会提交
+     */
+    private void incrementVersion() {
+        requiresNew.executeWithoutResult(status -> catalogVersionMapper.increment());
+        reloadVersion();
+    }
+
+    private void reloadVersion() {
+        Long latest = catalogVersionMapper.selectVersion();
+        version = latest == null ? 0 : latest;
+        versionCheckedAt = System.currentTimeMillis();
+    }
+
+    private String versionOf(long snapshotVersion) {
+        return Long.toString(snapshotVersion);
+    }
+
+    private String etagOf(String snapshotVersion) {
+        return "\"" + snapshotVersion + "\"";
+    }
+
+    /**
+     * 序列化后的快照
+     */
+    @Getter
+    public static class Payload {
+
+        private final long version;
+
+        private final String etag;
+
+        private final byte[] json;
+
+        private final byte[] gzip;
+
+        Payload(long version, String etag, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.etag = etag;
+            this.json = json;
+            this.gzip = gzip;
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.ddhj.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ddhj.common.CatalogChangedEvent;
+import com.ddhj.config.CacheConfig;
 import com.ddhj.entity.Category;
 import com.ddhj.mapper.CategoryMapper;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
@@ -14,6 +20,10 @@ public class CategoryService {
     @Resource
     private CategoryMapper categoryMapper;
 
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "'all'")
     public List<Category> getAllCategories() {
         LambdaQueryWrapper<Category> wrapper = new LambdaQueryWrapper<>();
         wrapper.orderByAsc(Category::getSortOrder)
@@ -21,22 +31,48 @@ public class CategoryService {
         return categoryMapper.selectList(wrapper);
     }
 
+    @Cacheable(cacheNames = CacheConfig.CATEGORY, key = "#id", unless = "#result == null")
     public Category getCategoryById(Long id) {
         return categoryMapper.selectById(id);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
     public boolean addCategory(Category category) {
-        return categoryMapper.insert(category) > 0;
+        boolean success = categoryMapper.insert(category) > 0;
+        if (success) {
+            eventPublisher.publishEvent(CatalogChangedEvent.INSTANCE);
+        }
+        return success;
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.CATEGORY, key = "#category.id")
+    })
     public boolean updateCategory(Category category) {
-        return categoryMapper.updateById(category) > 0;
+        boolean success = categoryMapper.updateById(category) > 0;
+        if (success) {
+            eventPublisher.publishEvent(CatalogChangedEvent.INSTANCE);
+        }
+        return success;
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.CATEGORY, key = "#id")
+    })
     public boolean deleteCategory(Long id) {
-        return categoryMapper.deleteById(id) > 0;
+        boolean success = categoryMapper.deleteById(id) > 0;
+        if (success) {
+            eventPublisher.publishEvent(CatalogChangedEvent.INSTANCE);
+        }
+        return success;
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.CATEGORY, allEntries = true)
+    })
     public boolean updateSortOrder(List<Long> ids) {
         for (int i = 0; i < ids.size(); i++) {
             Category category = new Category();
@@ -44,6 +80,7 @@ public class CategoryService {
             category.setSortOrder(i);
             categoryMapper.updateById(category);
         }
+        eventPublisher.publishEvent(CatalogChangedEvent.INSTANCE);
         return true;
     }
 }
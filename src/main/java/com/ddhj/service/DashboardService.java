@@ -0,0 +1,102 @@
+package com.ddhj.service;
+
+import com.ddhj.dto.Dashboard;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 统计看板：收入曲线、当日收入、当日订单数和热销榜并行查询
+ * <p>
+ * 所有部分同时提交，整体耗时取决于最慢的部分；
+ * 超过 ddhj.statistics.section-timeout 仍未完成的部分被取消，其余部分照常返回。
+ * 取消线程无法中止正在执行的 JDBC 查询，因此每部分在事务中执行，事务超时即截止时间，
+ * MyBatis 据此为每条语句设置查询超时，到期后由数据库终止查询并释放连接。
+ * 热销榜读主库（见 StatisticsService.getHotProducts），其余部分在只读事务中走从库。
+ */
+@Slf4j
+@Service
+public class DashboardService {
+
+    @Resource
+    private StatisticsService statisticsService;
+
+    @Resource
+    private ExecutorService statisticsExecutor;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${ddhj.statistics.section-timeout:3s}")
+    private Duration sectionTimeout;
+
+    public Dashboard getDashboard(LocalDate date, String mode, LocalDate startDate, LocalDate endDate, Integer limit) {
+        Dashboard dashboard = new Dashboard();
+        long deadline = System.nanoTime() + sectionTimeout.toNanos();
+
+        Section<?>[] sections = {
+                submit(dashboard, deadline, "revenue", true, () -> statisticsService.getRevenueStatistics(date, mode), dashboard::setRevenue),
+                submit(dashboard, deadline, "dayRevenue", true, () -> statisticsService.getDayTotalRevenue(date), dashboard::setDayRevenue),
+                submit(dashboard, deadline, "dayOrderCount", true, () -> statisticsService.getDayOrderCount(date), dashboard::setDayOrderCount),
+                submit(dashboard, deadline, "hotProducts", false, () -> statisticsService.getHotProducts(startDate, endDate, limit), dashboard::setHotProducts)
+        };
+        for (Section<?> section : sections) {
+            if (section != null) {
+                section.await(dashboard, deadline);
+            }
+        }
+        return dashboard;
+    }
+
+    /**
+     * @param readOnly 是否在只读事务中执行（配置从库时走从库）
+     */
+    private <T> Section<T> submit(Dashboard dashboard, long deadline, String name, boolean readOnly, Supplier<T> task,
+                                  Consumer<T> setter) {
+        try {
+            return new Section<>(name, statisticsExecutor.submit(() -> withDeadline(deadline, readOnly, task)), setter);
+        } catch (RejectedExecutionException e) {
+            dashboard.getErrors().put(name, "统计任务繁忙");
+            return null;
+        }
+    }
+
+    /**
+     * 在事务中执行，事务超时为距截止时间的剩余秒数（向上取整）
+     */
+    private <T> T withDeadline(long deadline, boolean readOnly, Supplier<T> task) {
+        long remaining = deadline - System.nanoTime();
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        template.setTimeout((int) Math.max(1, (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+        return template.execute(status -> task.get());
+    }
+
+    private record Section<T>(String name, Future<T> future, Consumer<T> setter) {
+
+        void await(Dashboard dashboard, long deadline) {
+            try {
+                setter.accept(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                dashboard.getErrors().put(name, "查询超时");
+            } catch (ExecutionException e) {
+                log.warn("统计看板 {} 查询失败", name, e.getCause());
+                dashboard.getErrors().put(name, "查询失败");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                dashboard.getErrors().put(name, "查询被中断");
+            }
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.ddhj.service;
+
+import com.ddhj.common.CatalogChangedEvent;
+import com.ddhj.config.CacheConfig;
+import com.ddhj.dto.SpecStock;
+import com.ddhj.entity.OrderItem;
+import com.ddhj.mapper.OrderItemMapper;
+import com.ddhj.mapper.SpecificationMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 热点规格内存库存
+ * <p>
+ * 热点规格的库存在内存中以无锁计数器预留，避免大促时所有下单请求争抢同一行锁。
+ * 下单事务只写入 stock_deferred = 1 的订单明细，由定时任务按规格汇总后批量回写规格表。
+ * 订单明细与订单在同一事务提交，因此进程崩溃后可在启动时根据未回写的明细补扣库存。
+ * <p>
+ * 计数器只存在于当前进程，多实例部署时不要开启。
+ */
+@Slf4j
+@Service
+public class HotInventoryService {
+
+    private static final int FLUSH_BATCH_SIZE = 1000;
+
+    /**
+     * 关闭内存库存时等待进行中的预留完成的最长时间
+     */
+    private static final long DRAIN_TIMEOUT_MILLIS = 10_000;
+
+    @Resource
+    private SpecificationMapper specificationMapper;
+
+    @Resource
+    private OrderItemMapper orderItemMapper;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 启动时开启内存库存的规格ID
+     */
+    @Value("${ddhj.inventory.hot-spec-ids:}")
+    private List<Long> hotSpecIds;
+
+    /**
+     * 预留后库存不得低于该值；设为负数表示允许超卖的数量
+     */
+    @Value("${ddhj.inventory.oversell-guard:0}")
+    private int oversellGuard;
+
+    /**
+     * 规格ID -> 可用库存（规格表库存减去待回写数量）
+     */
+    private final Map<Long, AtomicInteger> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 正在关闭的规格ID：新订单不再走内存预留，改为直接扣减规格表并同时从计数器中扣除
+     */
+    private final Set<Long> draining = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 规格ID -> 已在内存中预留、所在事务尚未结束的订单数
+     */
+    private final Map<Long, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 启动时先回写上次未回写的库存，再加载热点规格计数器
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        int flushed;
+        do {
+            flushed = flush();
+        } while (flushed > 0);
+
+        for (Long specId : hotSpecIds) {
+            enable(specId);
+        }
+    }
+
+    public boolean isHot(Long specId) {
+        return counters.containsKey(specId) && !draining.contains(specId);
+    }
+
+    /**
+     * 开启规格的内存库存
+     * 在事务中锁住规格行后再读取库存和待回写数量：回写任务和直接扣减库存的订单都要更新该行，
+     * 读取期间两者都不会改变库存，计数器不会高于实际可用库存
+     */
+    public boolean enable(Long specId) {
+        Boolean enabled = transactionTemplate.execute(status -> {
+            SpecStock spec = specificationMapper.selectStockByIdForUpdate(specId);
+            if (spec == null) {
+                return false;
+            }
+            int deferred = orderItemMapper.sumStockDeferredBySpecId(specId);
+            counters.putIfAbsent(specId, new AtomicInteger(spec.getStock() - deferred));
+            return true;
+        });
+        return Boolean.TRUE.equals(enabled);
+    }
+
+    /**
+     * 关闭规格的内存库存并立即回写
+     * 先停止把新订单路由到内存预留，等进行中的预留所在事务结束、回写完待回写的明细后再移除计数器；
+     * 期间的新订单直接扣减规格表，并从计数器中扣除，计数器仍是准确的可用库存，规格表中未回写的部分不会被超卖
+     */
+    public synchronized void disable(Long specId) {
+        if (!counters.containsKey(specId)) {
+            return;
+        }
+        draining.add(specId);
+        try {
+            awaitInFlight(specId);
+            int flushed;
+            do {
+                flushed = flush();
+            } while (flushed > 0);
+            counters.remove(specId);
+        } finally {
+            draining.remove(specId);
+        }
+    }
+
+    /**
+     * 热点规格的内存可用库存，非热点规格返回 null
+     */
+    public Integer getAvailable(Long specId) {
+        AtomicInteger counter = counters.get(specId);
+        return counter == null ? null : counter.get();
+    }
+
+    /**
+     * 规格ID -> 内存中的可用库存
+     */
+    public Map<Long, Integer> getCounters() {
+        Map<Long, Integer> result = new TreeMap<>();
+        counters.forEach((specId, counter) -> result.put(specId, counter.get()));
+        return result;
+    }
+
+    /**
+     * 在内存中预留热点规格库存，全部成功或全部不预留
+     * 在事务中调用时，事务未提交则自动释放预留；正在关闭或已关闭的规格不预留，留给调用方直接扣减规格表
+     *
+     * @param quantities 规格ID -> 扣减数量，预留成功的热点规格会被移除
+     * @return 已预留的热点规格ID -> 扣减数量，库存不足时返回 null
+     */
+    public Map<Long, Integer> reserve(Map<Long, Integer> quantities) {
+        Map<Long, Integer> reserved = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Long specId = entry.getKey();
+            if (!isHot(specId)) {
+                continue;
+            }
+            // 先登记再检查是否正在关闭：关闭时先标记再等待登记数归零，两者交错时总有一方能看到另一方
+            AtomicInteger pending = inFlight.computeIfAbsent(specId, id -> new AtomicInteger());
+            pending.incrementAndGet();
+            if (draining.contains(specId) || !counters.containsKey(specId)) {
+                pending.decrementAndGet();
+                continue;
+            }
+            if (!tryReserve(specId, entry.getValue())) {
+                pending.decrementAndGet();
+                release(reserved);
+                reserved.keySet().forEach(this::leave);
+                return null;
+            }
+            reserved.put(specId, entry.getValue());
+        }
+
+        quantities.keySet().removeAll(reserved.keySet());
+        releaseOnRollback(reserved);
+        leaveAfterCompletion(reserved.keySet());
+        return reserved;
+    }
+
+    /**
+     * 直接扣减规格表库存之后调用，需与扣减在同一事务中
+     * 规格正在关闭内存库存，或扣减期间刚好开启了内存库存时（计数器是按扣减前的库存初始化的，开启时需要持有同一行锁），
+     * 此处从计数器中补扣；事务回滚时恢复
+     *
+     * @param quantities 已从规格表扣减的规格ID -> 数量
+     * @return 计数器中的可用库存不足时返回 false，调用方需回滚事务
+     */
+    public boolean absorbDirectDeduction(Map<Long, Integer> quantities) {
+        Map<Long, Integer> absorbed = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (!counters.containsKey(entry.getKey())) {
+                continue;
+            }
+            if (!tryReserve(entry.getKey(), entry.getValue())) {
+                release(absorbed);
+                return false;
+            }
+            absorbed.put(entry.getKey(), entry.getValue());
+        }
+        releaseOnRollback(absorbed);
+        return true;
+    }
+
+    /**
+     * 管理员修改热点规格库存时，按修改前后的差值调整计数器
+     * 需在修改库存的事务中、更新规格之前调用。锁住规格行后读到的库存已包含回写完成的部分，
+     * 尚未回写的明细和进行中的预留不受影响，之后照常回写或释放，不会丢失或重复计算
+     */
+    public void adjustStock(Long specId, Integer stock) {
+        if (!isHot(specId)) {
+            return;
+        }
+        SpecStock current = specificationMapper.selectStockByIdForUpdate(specId);
+        if (current == null) {
+            return;
+        }
+        int delta = stock - current.getStock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                AtomicInteger counter = counters.get(specId);
+                if (counter != null) {
+                    counter.addAndGet(delta);
+                }
+            }
+        });
+    }
+
+    /**
+     * 将待回写的热点库存按规格汇总后批量扣减到规格表
+     *
+     * @return 本次回写的明细数
+     */
+    @Scheduled(fixedDelayString = "${ddhj.inventory.flush-interval:1000}")
+    public int flush() {
+        Integer flushed = transactionTemplate.execute(status -> {
+            List<OrderItem> items = orderItemMapper.selectStockDeferredForUpdate(FLUSH_BATCH_SIZE);
+            if (items.isEmpty()) {
+                return 0;
+            }
+
+            Map<Long, Integer> quantities = new TreeMap<>();
+            List<Long> ids = new ArrayList<>(items.size());
+            for (OrderItem item : items) {
+                quantities.merge(item.getSpecId(), item.getQuantity(), Integer::sum);
+                ids.add(item.getId());
+            }
+            specificationMapper.applyStockDeduction(quantities);
+            orderItemMapper.clearStockDeferred(ids);
+            evictCache(items);
+            return items.size();
+        });
+        if (flushed != null && flushed > 0) {
+            log.debug("回写热点规格库存 {} 条明细", flushed);
+        }
+        return flushed == null ? 0 : flushed;
+    }
+
+    private void evictCache(List<OrderItem> items) {
+        eventPublisher.publishEvent(CatalogChangedEvent.STOCK);
+        Cache specCache = cacheManager.getCache(CacheConfig.SPECIFICATION);
+        Cache productSpecsCache = cacheManager.getCache(CacheConfig.PRODUCT_SPECIFICATIONS);
+        for (OrderItem item : items) {
+            if (specCache != null) {
+                specCache.evict(item.getSpecId());
+            }
+            if (productSpecsCache != null) {
+                productSpecsCache.evict(item.getProductId());
+            }
+        }
+    }
+
+    /**
+     * 等待规格进行中的预留所在事务结束，超时后照常关闭，之后提交的明细由定时回写扣减
+     */
+    private void awaitInFlight(Long specId) {
+        AtomicInteger pending = inFlight.get(specId);
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (pending != null && pending.get() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                log.warn("规格 {} 仍有 {} 个预留未结束，不再等待", specId, pending.get());
+                return;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在事务中调用时，事务结束后取消进行中的登记，否则立即取消
+     */
+    private void leaveAfterCompletion(Set<Long> specIds) {
+        if (specIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            specIds.forEach(this::leave);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                specIds.forEach(HotInventoryService.this::leave);
+            }
+        });
+    }
+
+    private void leave(Long specId) {
+        AtomicInteger pending = inFlight.get(specId);
+        if (pending != null) {
+            pending.decrementAndGet();
+        }
+    }
+
+    private boolean tryReserve(Long specId, int quantity) {
+        AtomicInteger counter = counters.get(specId);
+        if (counter == null) {
+            return false;
+        }
+        while (true) {
+            int current = counter.get();
+            int next = current - quantity;
+            if (next < oversellGuard) {
+                return false;
+            }
+            if (counter.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 在事务中调用时，事务未提交则释放预留
+     */
+    private void releaseOnRollback(Map<Long, Integer> reserved) {
+        if (reserved.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    release(reserved);
+                }
+            }
+        });
+    }
+
+    private void release(Map<Long, Integer> reserved) {
+        reserved.forEach((specId, quantity) -> {
+            AtomicInteger counter = counters.get(specId);
+            if (counter != null) {
+                counter.addAndGet(quantity);
+            }
+        });
+    }
+}
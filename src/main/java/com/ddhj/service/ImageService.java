@@ -0,0 +1,427 @@
+package com.ddhj.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ddhj.mapper.ImageFileMapper;
+import lombok.extern.slf4j.Slf4j;
+import net.coobird.thumbnailator.Thumbnails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * 图片上传与异步处理
+ * <p>
+ * 上传时保存原图后提交有界线程池处理并立即返回：压缩图已存在时返回压缩图地址，否则返回原图地址及处理状态查询地址，
+ * 压缩图和各尺寸缩略图在后台生成。
+ * 队列满时拒绝上传，避免请求堆积拖垮服务。
+ * <p>
+ * 原图以内容的 SHA-256 命名，重复上传直接复用已有文件；商品图片引用计数归零且超过保留期的文件由定时任务回收。
+ */
+@Slf4j
+@Service
+public class ImageService {
+
+    public static final String UPLOAD_DIR = "image/";
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_PROCESSING = "processing";
+    public static final String STATUS_DONE = "done";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_UNKNOWN = "unknown";
+
+    /**
+     * 变体名称 -> 最大宽度，0 表示保持原尺寸仅压缩
+     */
+    private static final Map<String, Integer> VARIANTS = new LinkedHashMap<>();
+
+    static {
+        VARIANTS.put("compressed", 0);
+        VARIANTS.put("thumb", 200);
+        VARIANTS.put("list", 400);
+        VARIANTS.put("detail", 800);
+    }
+
+    private static final Set<String> ALLOWED_EXTENSIONS = Set.of(".jpg", ".jpeg", ".png", ".gif", ".bmp");
+
+    private static final Pattern FILENAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]+\\.[A-Za-z0-9]+");
+
+    /**
+     * 按内容摘要命名、纳入引用计数的原图
+     */
+    private static final Pattern HASHED_FILENAME_PATTERN = Pattern.compile("[0-9a-f]{64}\\.[a-z]+");
+
+    private static final int GC_BATCH_SIZE = 100;
+
+    @Resource
+    private ImageFileMapper imageFileMapper;
+
+    @Resource
+    private ResponsiveImageService responsiveImageService;
+
+    @Value("${ddhj.image.workers:2}")
+    private int workers;
+
+    @Value("${ddhj.image.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${ddhj.image.quality:0.8}")
+    private float quality;
+
+    @Value("${ddhj.virtual-threads.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * 无引用文件的保留时间，给刚上传尚未保存到商品的图片留出时间
+     */
+    @Value("${ddhj.image.gc-grace-period:24h}")
+    private Duration gcGracePeriod;
+
+    /**
+     * 上传登记与回收删除互斥，避免复用的文件被同时回收
+     */
+    private final ReentrantLock storeLock = new ReentrantLock();
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * 文件名 -> 处理状态，处理完成的记录保留一段时间后自动清除
+     */
+    private final Cache<String, String> statuses = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // 图片处理以 CPU 为主，虚拟线程模式下并发数仍由 workers 限制
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("image-worker-", 1).factory()
+                : runnable -> {
+                    Thread thread = new Thread(runnable, "image-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                };
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * 保存原图并提交后台处理，不等待处理完成
+     *
+     * @return url(压缩图已生成时为压缩图，否则为原图)、status 与 statusUrl(处理状态查询地址)
+     * @throws IllegalArgumentException   文件类型不支持
+     * @throws RejectedExecutionException 处理队列已满
+     */
+    public Map<String, Object> upload(MultipartFile file) throws IOException {
+        String extension = extensionOf(file.getOriginalFilename());
+        if (!ALLOWED_EXTENSIONS.contains(extension)) {
+            throw new IllegalArgumentException("不支持的图片格式");
+        }
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException("图片处理队列已满");
+        }
+
+        File uploadDir = getUploadDir();
+        if (!uploadDir.exists()) {
+            uploadDir.mkdirs();
+        }
+
+        // 边写临时文件边计算摘要
+        Path tmp = Files.createTempFile(uploadDir.toPath(), ".upload", ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String filename = HexFormat.of().formatHex(digest.digest()) + extension;
+            File dest = new File(uploadDir, filename);
+
+            storeLock.lock();
+            try {
+                imageFileMapper.touch(filename, Files.size(tmp));
+                if (dest.exists()) {
+                    // 相同内容已存在，直接复用；变体缺失且不在处理中时重新生成
+                    String status = statuses.getIfPresent(filename);
+                    if (STATUS_PENDING.equals(status) || STATUS_PROCESSING.equals(status)
+                            || new File(uploadDir, variantFilename(filename, "compressed")).exists()) {
+                        return uploadResult(filename);
+                    }
+                } else {
+                    Files.move(tmp, dest.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                storeLock.unlock();
+            }
+
+            statuses.put(filename, STATUS_PENDING);
+            try {
+                executor.execute(() -> process(dest));
+            } catch (RejectedExecutionException e) {
+                // 原图已保存，变体会在下次上传相同图片时补生成
+                statuses.put(filename, STATUS_FAILED);
+                throw e;
+            }
+            return uploadResult(filename);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 调整商品图片引用计数，需在商品写入的事务中调用
+     * 只统计按内容摘要命名的图片，未登记时补登记；旧的 UUID 文件名图片引用从未计数，不参与回收
+     *
+     * @param added   新引用的图片路径
+     * @param removed 不再引用的图片路径
+     */
+    public void updateReferences(List<String> added, List<String> removed) {
+        Map<String, Integer> deltas = new TreeMap<>();
+        if (added != null) {
+            for (String path : added) {
+                deltas.merge(filenameOf(path), 1, Integer::sum);
+            }
+        }
+        if (removed != null) {
+            for (String path : removed) {
+                deltas.merge(filenameOf(path), -1, Integer::sum);
+            }
+        }
+        deltas.forEach((filename, delta) -> {
+            if (delta != 0 && HASHED_FILENAME_PATTERN.matcher(filename).matches()) {
+                imageFileMapper.addRefCount(filename, new File(getUploadDir(), filename).length(), delta);
+            }
+        });
+    }
+
+    /**
+     * 回收无商品引用且超过保留期的图片及其变体、/images 派生图
+     */
+    @Scheduled(fixedDelayString = "${ddhj.image.gc-interval:3600000}")
+    public void collectGarbage() {
+        LocalDateTime before = LocalDateTime.now().minus(gcGracePeriod);
+        List<String> filenames;
+        do {
+            filenames = imageFileMapper.selectUnreferenced(before, GC_BATCH_SIZE);
+            for (String filename : filenames) {
+                storeLock.lock();
+                try {
+                    if (imageFileMapper.deleteUnreferenced(filename, before) == 0) {
+                        continue;
+                    }
+                    File uploadDir = getUploadDir();
+                    Files.deleteIfExists(new File(uploadDir, filename).toPath());
+                    for (String variant : VARIANTS.keySet()) {
+                        Files.deleteIfExists(new File(uploadDir, variantFilename(filename, variant)).toPath());
+                    }
+                    responsiveImageService.evictDerived(filename);
+                    statuses.invalidate(filename);
+                    log.info("回收无引用图片: {}", filename);
+                } catch (IOException e) {
+                    log.warn("删除图片失败: {}", filename, e);
+                } finally {
+                    storeLock.unlock();
+                }
+            }
+        } while (filenames.size() == GC_BATCH_SIZE);
+    }
+
+    /**
+     * 查询图片处理状态及已生成的变体
+     *
+     * @param filename 原图或变体（如上传返回的压缩图）文件名
+     * @return status 与 variants(变体名称 -> 访问路径)，文件名非法时返回 null
+     */
+    public Map<String, Object> getStatus(String filename) {
+        if (!FILENAME_PATTERN.matcher(filename).matches()) {
+            return null;
+        }
+        filename = originalFilename(filename);
+        File original = new File(getUploadDir(), filename);
+        String status = statuses.getIfPresent(filename);
+        if (status == null) {
+            status = original.exists() ? STATUS_DONE : STATUS_UNKNOWN;
+        }
+
+        Map<String, String> variants = new LinkedHashMap<>();
+        if (original.exists()) {
+            variants.put("original", "/api/image/" + filename);
+        }
+        for (String variant : VARIANTS.keySet()) {
+            String variantName = variantFilename(filename, variant);
+            if (new File(getUploadDir(), variantName).exists()) {
+                variants.put(variant, "/api/image/" + variantName);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", status);
+        result.put("variants", variants);
+        return result;
+    }
+
+    /**
+     * 处理队列指标
+     */
+    public Map<String, Object> getQueueMetrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("queueSize", executor.getQueue().size());
+        result.put("queueCapacity", queueCapacity);
+        result.put("activeCount", executor.getActiveCount());
+        result.put("completedTaskCount", executor.getCompletedTaskCount());
+        return result;
+    }
+
+    /**
+     * 是否按内容摘要命名（含其压缩图、缩略图等变体），这类文件内容不会变化，可长期缓存
+     */
+    public static boolean isContentAddressed(String filename) {
+        return HASHED_FILENAME_PATTERN.matcher(originalFilename(filename)).matches();
+    }
+
+    public static String variantFilename(String filename, String variant) {
+        int index = filename.lastIndexOf('.');
+        return filename.substring(0, index) + "_" + variant + filename.substring(index);
+    }
+
+    /**
+     * 上传返回的地址只指向已存在的文件：压缩图生成前先返回原图
+     */
+    private Map<String, Object> uploadResult(String filename) {
+        String compressed = variantFilename(filename, "compressed");
+        boolean ready = new File(getUploadDir(), compressed).exists();
+        String status = statuses.getIfPresent(filename);
+        if (status == null) {
+            status = ready ? STATUS_DONE : STATUS_PENDING;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("url", "/api/image/" + (ready ? compressed : filename));
+        result.put("status", status);
+        result.put("statusUrl", "/api/upload/" + filename + "/status");
+        return result;
+    }
+
+    private void process(File original) {
+        String filename = original.getName();
+        statuses.put(filename, STATUS_PROCESSING);
+        try {
+            BufferedImage image = ImageIO.read(original);
+            if (image == null) {
+                throw new IOException("无法识别的图片: " + filename);
+            }
+            String format = extensionOf(filename).substring(1);
+
+            for (Map.Entry<String, Integer> entry : VARIANTS.entrySet()) {
+                int maxWidth = entry.getValue();
+                double scale = maxWidth == 0 || image.getWidth() <= maxWidth
+                        ? 1.0 : (double) maxWidth / image.getWidth();
+                writeAtomically(new File(original.getParentFile(), variantFilename(filename, entry.getKey())),
+                        out -> Thumbnails.of(image)
+                                .scale(scale)
+                                .outputFormat(format)
+                                .outputQuality(quality)
+                                .toOutputStream(out));
+            }
+            statuses.put(filename, STATUS_DONE);
+        } catch (Exception e) {
+            log.error("图片处理失败: {}", filename, e);
+            statuses.put(filename, STATUS_FAILED);
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，避免读到写了一半的图片
+     */
+    private void writeAtomically(File dest, VariantWriter writer) throws IOException {
+        Path tmp = Files.createTempFile(dest.getParentFile().toPath(), ".variant", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                writer.write(out);
+            }
+            Files.move(tmp, dest.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private File getUploadDir() {
+        // 获取项目根目录的绝对路径
+        return new File(System.getProperty("user.dir"), UPLOAD_DIR);
+    }
+
+    /**
+     * 从 /api/image/xxx.jpg 形式的访问路径中取出原图文件名，压缩图、缩略图等变体对应其原图
+     */
+    private static String filenameOf(String path) {
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        return originalFilename(path.substring(path.lastIndexOf('/') + 1));
+    }
+
+    /**
+     * 变体文件名对应的原图文件名，原图返回自身
+     */
+    private static String originalFilename(String filename) {
+        for (String variant : VARIANTS.keySet()) {
+            String suffix = "_" + variant;
+            int dot = filename.lastIndexOf('.');
+            if (dot > suffix.length() && filename.startsWith(suffix, dot - suffix.length())) {
+                return filename.substring(0, dot - suffix.length()) + filename.substring(dot);
+            }
+        }
+        return filename;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String extensionOf(String filename) {
+        if (filename == null || !filename.contains(".")) {
+            return "";
+        }
+        return filename.substring(filename.lastIndexOf(".")).toLowerCase(Locale.ROOT);
+    }
+
+    @FunctionalInterface
+    private interface VariantWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
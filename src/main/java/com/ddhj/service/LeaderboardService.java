@@ -0,0 +1,317 @@
+package com.ddhj.service;
+
+import com.ddhj.dto.HotProduct;
+import com.ddhj.entity.OrderItem;
+import com.ddhj.entity.Product;
+import com.ddhj.entity.ProductSalesDaily;
+import com.ddhj.mapper.ProductSalesDailyMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 热销商品榜单
+ * <p>
+ * 下单和删除订单时在同一事务中、写入明细之前累加商品日销量，按 (日期, 商品ID) 排序后批量写入，加锁顺序一致。
+ * 查询任意日期区间时合并各日销量，用容量为 N 的小顶堆取前 N 名。
+ * 已结束日期的日销量和排名基本不再变化（离线补传或删除历史订单时在写入后失效），永久缓存；
+ * 包含今天的数据只缓存 ddhj.leaderboard.today-ttl。
+ */
+@Service
+public class LeaderboardService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final Comparator<DailyKey> KEY_ORDER = Comparator.comparing(DailyKey::date)
+            .thenComparing(DailyKey::productId);
+
+    @Resource
+    private ProductSalesDailyMapper productSalesDailyMapper;
+
+    @Resource
+    private ProductService productService;
+
+    @Value("${ddhj.leaderboard.today-ttl:10s}")
+    private Duration todayTtl;
+
+    /**
+     * 日期 -> (商品ID -> 销量)
+     */
+    private Cache<LocalDate, Map<Long, Integer>> dailySales;
+
+    /**
+     * 区间 -> 按销量倒序的 (商品ID, 销量)
+     */
+    private Cache<Range, List<Ranking>> rankings;
+
+    /**
+     * 写入和失效次数；加载期间发生过写入或失效的结果随即移出缓存，旧数据不会被永久缓存
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        dailySales = Caffeine.newBuilder()
+                .maximumSize(800)
+                .expireAfter(this.<LocalDate, Map<Long, Integer>>expiry(date -> date))
+                .build();
+        rankings = Caffeine.newBuilder()
+                .maximumSize(2000)
+                .expireAfter(this.<Range, List<Ranking>>expiry(Range::endDate))
+                .build();
+    }
+
+    /**
+     * 将订单明细计入商品日销量，需在创建订单的事务中、写入明细之前调用，明细需已填充下单日期
+     */
+    public void recordItems(List<OrderItem> items) {
+        accumulate(items, 1);
+    }
+
+    /**
+     * 从商品日销量中扣除订单明细，需在删除订单的事务中、删除明细之前调用
+     */
+    public void revertItems(List<OrderItem> items) {
+        accumulate(items, -1);
+    }
+
+    /**
+     * 根据订单明细重建 [startDate, endDate] 内的商品日销量
+     * <p>
+     * 与 RevenueRollupService.rebuild 相同，先锁住区间内的日销量行及间隙再读明细：
+     * 写明细的事务先累加日销量，已累加未提交的事务使重建在加锁时等待，之后的事务等待重建提交后再累加
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void rebuild(LocalDate startDate, LocalDate endDate) {
+        LocalDate endExclusive = endDate.plusDays(1);
+        productSalesDailyMapper.lockRange(startDate, endExclusive);
+        productSalesDailyMapper.deleteRange(startDate, endExclusive);
+        productSalesDailyMapper.rebuildRange(startDate.atStartOfDay(), endExclusive.atStartOfDay());
+        afterCommit(() -> {
+            invalidations.incrementAndGet();
+            dailySales.invalidateAll();
+            rankings.invalidateAll();
+        });
+    }
+
+    /**
+     * 按销量取 [startDate, endDate] 内的前 limit 个商品，已删除的商品不返回
+     */
+    public List<HotProduct> getTop(LocalDate startDate, LocalDate endDate, int limit) {
+        if (limit <= 0 || startDate.isAfter(endDate)) {
+            return List.of();
+        }
+        Range range = new Range(startDate, endDate, limit);
+        List<Ranking> ranking = rankings.getIfPresent(range);
+        if (ranking == null) {
+            long generation = invalidations.get();
+            ranking = rank(range);
+            cacheUnlessInvalidated(rankings, range, ranking, generation);
+        }
+
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productService.getProductsByIds(ranking.stream().map(Ranking::productId).toList())) {
+            products.put(product.getId(), product);
+        }
+        List<HotProduct> result = new ArrayList<>(ranking.size());
+        for (Ranking entry : ranking) {
+            Product product = products.get(entry.productId());
+            if (product == null) {
+                continue;
+            }
+            HotProduct hotProduct = new HotProduct();
+            hotProduct.setProductId(product.getId());
+            hotProduct.setProductName(product.getName());
+            hotProduct.setCategoryId(product.getCategoryId());
+            hotProduct.setImages(product.getImages());
+            hotProduct.setSellPrice(product.getSellPrice());
+            hotProduct.setSales(entry.sales());
+            result.add(hotProduct);
+        }
+        return result;
+    }
+
+    private List<Ranking> rank(Range range) {
+        Map<Long, Integer> totals = new HashMap<>();
+        for (Map<Long, Integer> day : loadDays(range.startDate(), range.endDate()).values()) {
+            day.forEach((productId, sales) -> totals.merge(productId, sales, Integer::sum));
+        }
+
+        Comparator<Ranking> order = Comparator.comparingInt(Ranking::sales)
+                .thenComparing(Ranking::productId, Comparator.reverseOrder());
+        PriorityQueue<Ranking> heap = new PriorityQueue<>(range.limit() + 1, order);
+        totals.forEach((productId, sales) -> {
+            if (sales <= 0) {
+                return;
+            }
+            heap.offer(new Ranking(productId, sales));
+            if (heap.size() > range.limit()) {
+                heap.poll();
+            }
+        });
+
+        List<Ranking> result = new ArrayList<>(heap);
+        result.sort(order.reversed());
+        return List.copyOf(result);
+    }
+
+    /**
+     * 读取区间内每天的商品销量，缓存中缺失的日期用一次查询补齐
+     */
+    private Map<LocalDate, Map<Long, Integer>> loadDays(LocalDate startDate, LocalDate endDate) {
+        List<LocalDate> dates = startDate.datesUntil(endDate.plusDays(1)).toList();
+        Map<LocalDate, Map<Long, Integer>> days = new HashMap<>(dailySales.getAllPresent(dates));
+        if (days.size() == dates.size()) {
+            return days;
+        }
+
+        LocalDate first = null;
+        LocalDate last = null;
+        for (LocalDate date : dates) {
+            if (!days.containsKey(date)) {
+                first = first == null ? date : first;
+                last = date;
+            }
+        }
+        Map<LocalDate, Map<Long, Integer>> loaded = new HashMap<>();
+        for (LocalDate date : first.datesUntil(last.plusDays(1)).toList()) {
+            loaded.put(date, new HashMap<>());
+        }
+        long generation = invalidations.get();
+        for (ProductSalesDaily row : productSalesDailyMapper.selectRange(first, last.plusDays(1))) {
+            loaded.get(row.getStatDate()).put(row.getProductId(), row.getSales());
+        }
+        loaded.forEach((date, sales) -> {
+            Map<Long, Integer> day = Collections.unmodifiableMap(sales);
+            cacheUnlessInvalidated(dailySales, date, day, generation);
+            days.put(date, day);
+        });
+        return days;
+    }
+
+    /**
+     * 先写入缓存再检查加载期间是否发生过失效，发生过则移除：
+     * 失效总是先计数再清除缓存，无论与写入如何交错，旧数据都不会留在缓存中
+     */
+    private <K, V> void cacheUnlessInvalidated(Cache<K, V> cache, K key, V value, long generation) {
+        cache.put(key, value);
+        if (invalidations.get() != generation) {
+            cache.invalidate(key);
+        }
+    }
+
+    private void invalidate(Set<LocalDate> dates) {
+        invalidations.incrementAndGet();
+        dailySales.invalidateAll(dates);
+        rankings.asMap().keySet().removeIf(range -> dates.stream().anyMatch(range::contains));
+    }
+
+    /**
+     * 按 (日期, 商品ID) 合并排序后分批累加；今天的数据依靠短时缓存刷新，历史日期在事务提交后失效
+     */
+    private void accumulate(List<OrderItem> items, int sign) {
+        Map<DailyKey, Integer> deltas = new TreeMap<>(KEY_ORDER);
+        for (OrderItem item : items) {
+            deltas.merge(new DailyKey(item.getOrderDate().toLocalDate(), item.getProductId()),
+                    sign * item.getQuantity(), Integer::sum);
+        }
+        List<ProductSalesDaily> rows = new ArrayList<>(deltas.size());
+        Set<LocalDate> closedDates = new HashSet<>();
+        LocalDate today = LocalDate.now();
+        deltas.forEach((key, sales) -> {
+            if (sales == 0) {
+                return;
+            }
+            ProductSalesDaily row = new ProductSalesDaily();
+            row.setStatDate(key.date());
+            row.setProductId(key.productId());
+            row.setSales(sales);
+            rows.add(row);
+            if (key.date().isBefore(today)) {
+                closedDates.add(key.date());
+            }
+        });
+        if (rows.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            productSalesDailyMapper.accumulateBatch(rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE)));
+        }
+
+        // 今天的数据不失效，但加载期间写入过的结果不再缓存，避免跨过零点后被当作历史数据永久缓存
+        afterCommit(() -> {
+            if (closedDates.isEmpty()) {
+                invalidations.incrementAndGet();
+            } else {
+                invalidate(closedDates);
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 截止日期早于今天的条目不过期（只在写入后失效或按容量淘汰），否则缓存 todayTtl 且不跨过零点
+     */
+    private <K, V> Expiry<K, V> expiry(Function<K, LocalDate> lastDate) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(K key, V value, long currentTime) {
+                LocalDateTime now = LocalDateTime.now();
+                if (lastDate.apply(key).isBefore(now.toLocalDate())) {
+                    return Long.MAX_VALUE;
+                }
+                Duration untilMidnight = Duration.between(now, now.toLocalDate().plusDays(1).atStartOfDay());
+                return Math.min(todayTtl.toNanos(), untilMidnight.toNanos());
+            }
+
+            @Override
+            public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private record Range(LocalDate startDate, LocalDate endDate, int limit) {
+
+        boolean contains(LocalDate date) {
+            return !date.isBefore(startDate) && !date.isAfter(endDate);
+        }
+    }
+
+    private record Ranking(Long productId, int sales) {
+    }
+
+    private record DailyKey(LocalDate date, Long productId) {
+    }
+}
@@ -0,0 +1,184 @@
+package com.ddhj.service;
+
+import com.ddhj.dto.TablePartition;
+import com.ddhj.mapper.OrderArchiveMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单表分区维护与冷数据归档
+ * <p>
+ * 订单表按下单月份分区（RANGE COLUMNS(order_date)），带日期范围的列表和导出只访问相关分区。
+ * 定时任务提前从 p_max 拆出未来几个月的分区，把超过保留期的整月订单连同明细迁入压缩存储的归档表，
+ * 迁空的月分区合并为 p_archived，订单表及其索引只保留近期数据。
+ * 订单表未分区或数据库不支持分区（如 H2）时只迁移数据。
+ * <p>
+ * 已归档月份的收入汇总和热销榜单仍可查询，但不能再根据订单重建。
+ */
+@Slf4j
+@Service
+public class OrderArchiveService {
+
+    private static final String MAX_PARTITION = "p_max";
+
+    private static final String ARCHIVED_PARTITION = "p_archived";
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    @Resource
+    private OrderArchiveMapper orderArchiveMapper;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 订单表保留的整月数（不含当月）
+     */
+    @Value("${ddhj.order-archive.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${ddhj.order-archive.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 提前创建的月分区数（不含当月）
+     */
+    @Value("${ddhj.order-archive.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    /**
+     * 下单日期早于该日期的订单会被归档
+     */
+    public LocalDate getArchiveBefore() {
+        return LocalDate.now().withDayOfMonth(1).minusMonths(retentionMonths);
+    }
+
+    /**
+     * 归档超过保留期的订单并维护分区
+     *
+     * @return 本次归档的订单数
+     */
+    @Scheduled(cron = "${ddhj.order-archive.cron:0 30 3 * * *}")
+    public synchronized long archive() {
+        LocalDate archiveBefore = getArchiveBefore();
+        long archived = moveOrders(archiveBefore.atStartOfDay());
+        if (archived > 0) {
+            log.info("归档 {} 之前的订单 {} 条", archiveBefore, archived);
+        }
+
+        List<TablePartition> partitions = listPartitions();
+        if (!partitions.isEmpty()) {
+            mergeArchivedPartitions(partitions, archiveBefore);
+            createPartitions(listPartitions());
+        }
+        return archived;
+    }
+
+    /**
+     * 按订单ID分批把订单和明细复制到归档表后删除，每批一个事务
+     */
+    private long moveOrders(LocalDateTime before) {
+        long archived = 0;
+        long afterId = 0;
+        List<Long> ids;
+        do {
+            ids = orderArchiveMapper.selectIdsBefore(before, afterId, batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            List<Long> batch = ids;
+            Integer moved = transactionTemplate.execute(status -> {
+                int count = orderArchiveMapper.copyOrders(before, batch);
+                orderArchiveMapper.copyItems(batch);
+                orderArchiveMapper.deleteItems(batch);
+                orderArchiveMapper.deleteOrders(before, batch);
+                return count;
+            });
+            archived += moved == null ? 0 : moved;
+            afterId = ids.get(ids.size() - 1);
+        } while (ids.size() == batchSize);
+        return archived;
+    }
+
+    /**
+     * 把上界不晚于 archiveBefore 的分区合并为 p_archived，这些分区的订单已迁走，重组时几乎不需要复制数据
+     */
+    private void mergeArchivedPartitions(List<TablePartition> partitions, LocalDate archiveBefore) {
+        List<String> names = new ArrayList<>();
+        LocalDate bound = null;
+        for (TablePartition partition : partitions) {
+            LocalDate upper = upperBound(partition);
+            if (upper == null || upper.isAfter(archiveBefore)) {
+                break;
+            }
+            names.add(partition.getName());
+            bound = upper;
+        }
+        if (names.isEmpty() || names.equals(List.of(ARCHIVED_PARTITION))) {
+            return;
+        }
+        orderArchiveMapper.reorganizeOrderPartitions(String.join(",", names), definition(ARCHIVED_PARTITION, bound));
+        log.info("合并已归档的订单分区 {} 为 {}", names, ARCHIVED_PARTITION);
+    }
+
+    /**
+     * 从 p_max 拆出截至未来 partitionsAhead 个月的月分区，首个月分区同时容纳之前的全部订单
+     */
+    private void createPartitions(List<TablePartition> partitions) {
+        TablePartition last = partitions.get(partitions.size() - 1);
+        if (!MAX_PARTITION.equals(last.getName()) || upperBound(last) != null) {
+            log.warn("订单表最后一个分区不是 {}，跳过创建月分区", MAX_PARTITION);
+            return;
+        }
+
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+        LocalDate bound = partitions.size() > 1
+                ? upperBound(partitions.get(partitions.size() - 2)).plusMonths(1)
+                : thisMonth.plusMonths(1);
+        List<String> definitions = new ArrayList<>();
+        for (; !bound.isAfter(thisMonth.plusMonths(partitionsAhead + 1)); bound = bound.plusMonths(1)) {
+            definitions.add(definition(bound.minusMonths(1).format(PARTITION_NAME), bound));
+        }
+        if (definitions.isEmpty()) {
+            return;
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        orderArchiveMapper.reorganizeOrderPartitions(MAX_PARTITION, String.join(", ", definitions));
+        log.info("创建订单月分区 {} 个", definitions.size() - 1);
+    }
+
+    /**
+     * 订单表的分区，未分区或数据库不支持分区时返回空列表
+     */
+    private List<TablePartition> listPartitions() {
+        try {
+            return orderArchiveMapper.selectOrderPartitions();
+        } catch (DataAccessException e) {
+            log.debug("无法查询订单表分区，跳过分区维护", e);
+            return List.of();
+        }
+    }
+
+    private static String definition(String name, LocalDate bound) {
+        return "PARTITION " + name + " VALUES LESS THAN ('" + bound + "')";
+    }
+
+    /**
+     * 分区上界日期，MAXVALUE 返回 null
+     */
+    private static LocalDate upperBound(TablePartition partition) {
+        String description = partition.getDescription().replace("'", "").trim();
+        return "MAXVALUE".equals(description) ? null : LocalDate.parse(description.substring(0, 10));
+    }
+}
@@ -0,0 +1,99 @@
+package com.ddhj.service;
+
+import com.ddhj.dto.BatchOrderResult;
+import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItem;
+import com.ddhj.mapper.OrderNumberRegistryMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.*;
+
+/**
+ * 批量导入订单，用于收银终端离线后补传
+ * <p>
+ * 以订单号幂等：已存在（含已删除、已归档）或本批次内重复的订单号直接返回 duplicate。
+ * 每个分块在一个事务中多行插入并按规格汇总扣减库存；
+ * 分块因库存不足或并发写入同一订单号失败时，退回逐单创建以得到每个订单的准确结果。
+ */
+@Slf4j
+@Service
+public class OrderBatchService {
+
+    private static final int CHUNK_SIZE = 200;
+
+    @Resource
+    private OrderService orderService;
+
+    @Resource
+    private OrderItemService orderItemService;
+
+    @Resource
+    private OrderNumberRegistryMapper orderNumberRegistryMapper;
+
+    /**
+     * @return 与请求顺序一致的处理结果
+     */
+    public List<BatchOrderResult> ingest(List<Order> orders) {
+        BatchOrderResult[] results = new BatchOrderResult[orders.size()];
+        for (Order order : orders) {
+            orderService.fillDefaults(order);
+        }
+
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < orders.size(); from += CHUNK_SIZE) {
+            List<String> orderNumbers = orders.subList(from, Math.min(from + CHUNK_SIZE, orders.size()))
+                    .stream().map(Order::getOrderNumber).toList();
+            existing.addAll(orderNumberRegistryMapper.selectExisting(orderNumbers));
+        }
+
+        List<Integer> pending = new ArrayList<>();
+        List<List<OrderItem>> pendingItems = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            if (existing.contains(order.getOrderNumber()) || !seen.add(order.getOrderNumber())) {
+                results[i] = new BatchOrderResult(order.getOrderNumber(), BatchOrderResult.DUPLICATE, null);
+                continue;
+            }
+            try {
+                pendingItems.add(orderItemService.parseItems(order));
+                pending.add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = new BatchOrderResult(order.getOrderNumber(), BatchOrderResult.FAILED, e.getMessage());
+            }
+        }
+
+        for (int from = 0; from < pending.size(); from += CHUNK_SIZE) {
+            int to = Math.min(from + CHUNK_SIZE, pending.size());
+            List<Integer> indexes = pending.subList(from, to);
+            List<Order> chunk = indexes.stream().map(orders::get).toList();
+            try {
+                orderService.createOrders(chunk, pendingItems.subList(from, to));
+                for (int index : indexes) {
+                    results[index] = new BatchOrderResult(orders.get(index).getOrderNumber(), BatchOrderResult.CREATED, null);
+                }
+            } catch (RuntimeException e) {
+                log.info("批量创建订单失败，逐单重试 {} 个订单: {}", chunk.size(), e.getMessage());
+                for (int index : indexes) {
+                    results[index] = createOne(orders.get(index));
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private BatchOrderResult createOne(Order order) {
+        order.setId(null);
+        try {
+            orderService.createOrder(order);
+            return new BatchOrderResult(order.getOrderNumber(), BatchOrderResult.CREATED, null);
+        } catch (DuplicateKeyException e) {
+            return new BatchOrderResult(order.getOrderNumber(), BatchOrderResult.DUPLICATE, null);
+        } catch (RuntimeException e) {
+            return new BatchOrderResult(order.getOrderNumber(), BatchOrderResult.FAILED, e.getMessage());
+        }
+    }
+}
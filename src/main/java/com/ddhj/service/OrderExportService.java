@@ -0,0 +1,117 @@
+package com.ddhj.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.ddhj.dto.OrderExportRow;
+import com.ddhj.mapper.OrderMapper;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 订单流式导出
+ * <p>
+ * 通过 MyBatis Cursor 逐行读取并直接写入输出流，内存占用与导出行数无关。
+ */
+@Service
+public class OrderExportService {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Resource
+    private OrderMapper orderMapper;
+
+    /**
+     * 导出订单
+     *
+     * @param format csv 或 ndjson
+     * @return 导出的行数
+     */
+    @Transactional(readOnly = true, rollbackFor = Exception.class)
+    public long export(LocalDateTime startDate, LocalDateTime endDate, String format, OutputStream out)
+            throws IOException {
+        boolean csv = "csv".equals(format);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (csv) {
+            // UTF-8 BOM，便于 Excel 正确识别中文
+            writer.write('\uFEFF');
+            writer.write("id,order_number,order_date,total_amount,paid_amount,notes,items\n");
+        }
+
+        long count = 0;
+        try (Cursor<OrderExportRow> cursor = orderMapper.selectExportCursor(startDate, endDate)) {
+            for (OrderExportRow row : cursor) {
+                if (csv) {
+                    writeCsv(writer, row);
+                } else {
+                    writeJson(writer, row);
+                }
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void writeCsv(Writer writer, OrderExportRow row) throws IOException {
+        writer.write(String.valueOf(row.getId()));
+        writer.write(',');
+        writer.write(csvField(row.getOrderNumber()));
+        writer.write(',');
+        writer.write(row.getOrderDate() == null ? "" : DATE_FORMATTER.format(row.getOrderDate()));
+        writer.write(',');
+        writer.write(csvNumber(row.getTotalAmount()));
+        writer.write(',');
+        writer.write(csvNumber(row.getPaidAmount()));
+        writer.write(',');
+        writer.write(csvField(row.getNotes()));
+        writer.write(',');
+        writer.write(csvField(row.getItems()));
+        writer.write('\n');
+    }
+
+    private void writeJson(Writer writer, OrderExportRow row) throws IOException {
+        writer.write("{\"id\":");
+        writer.write(String.valueOf(row.getId()));
+        writer.write(",\"orderNumber\":");
+        writer.write(JSON.toJSONString(row.getOrderNumber()));
+        writer.write(",\"orderDate\":");
+        writer.write(row.getOrderDate() == null ? "null" : "\"" + DATE_FORMATTER.format(row.getOrderDate()) + "\"");
+        writer.write(",\"totalAmount\":");
+        writer.write(String.valueOf(row.getTotalAmount()));
+        writer.write(",\"paidAmount\":");
+        writer.write(String.valueOf(row.getPaidAmount()));
+        writer.write(",\"notes\":");
+        writer.write(JSON.toJSONString(row.getNotes()));
+        writer.write(",\"items\":");
+        // items 列本身就是 JSON，原样写出
+        writer.write(row.getItems() == null ? "null" : row.getItems());
+        writer.write("}\n");
+    }
+
+    /**
+     * 空值输出为空字段，而不是字面量 null
+     */
+    private String csvNumber(Double value) {
+        return value == null ? "" : String.valueOf(value);
+    }
+
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,188 @@
+package com.ddhj.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItem;
+import com.ddhj.entity.OrderLine;
+import com.ddhj.mapper.OrderItemMapper;
+import com.ddhj.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 订单明细维护
+ */
+@Slf4j
+@Service
+public class OrderItemService {
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    @Value("${ddhj.order-item.backfill:false}")
+    private boolean backfillEnabled;
+
+    @Value("${ddhj.order-item.backfill-from-id:0}")
+    private long backfillFromId;
+
+    @Resource
+    private OrderItemMapper orderItemMapper;
+
+    @Resource
+    private OrderMapper orderMapper;
+
+    /**
+     * 解析订单 items 中的商品明细，下单日期取自订单
+     * items 结构为 {商品ID: [{规格id, 购买数量, ...}], notes: ...}
+     *
+     * @throws IllegalArgumentException 明细格式错误
+     */
+    public List<OrderItem> parseItems(Order order) {
+        List<OrderItem> result = new ArrayList<>();
+        if (order.getItems() == null) {
+            return result;
+        }
+
+        for (Map.Entry<String, Object> entry : order.getItems().getExtra().entrySet()) {
+            if (entry.getValue() instanceof List) {
+                throw new IllegalArgumentException("订单商品格式错误: " + entry.getKey());
+            }
+        }
+
+        for (Map.Entry<Long, List<OrderLine>> entry : order.getItems().getProducts().entrySet()) {
+            Long productId = entry.getKey();
+            for (OrderLine line : entry.getValue()) {
+                // 购买数量必须大于 0
+                if (line.isMalformed() || line.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("订单商品格式错误: " + productId);
+                }
+
+                OrderItem item = new OrderItem();
+                item.setProductId(productId);
+                item.setSpecId(line.getSpecId());
+                item.setQuantity(line.getQuantity());
+                item.setUnitPrice(line.getUnitPrice());
+                item.setOrderDate(order.getOrderDate());
+                item.setStockDeferred(0);
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 保存订单明细，需在创建订单的事务中调用
+     */
+    public void saveItems(Order order, List<OrderItem> items) {
+        for (OrderItem item : items) {
+            item.setOrderId(order.getId());
+            item.setOrderDate(order.getOrderDate());
+        }
+        saveItems(items);
+    }
+
+    /**
+     * 保存已填充订单ID和下单日期的明细，items 中没有记录单价的取当前商品售价
+     */
+    public void saveItems(List<OrderItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        orderItemMapper.insertBatch(items, true);
+    }
+
+    /**
+     * 查询订单明细
+     */
+    public List<OrderItem> listItems(Long orderId) {
+        LambdaQueryWrapper<OrderItem> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(OrderItem::getOrderId, orderId);
+        return orderItemMapper.selectList(wrapper);
+    }
+
+    /**
+     * 删除订单明细，需在删除订单的事务中调用
+     */
+    public void deleteItems(Long orderId) {
+        LambdaQueryWrapper<OrderItem> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(OrderItem::getOrderId, orderId);
+        orderItemMapper.delete(wrapper);
+    }
+
+    /**
+     * 配置 ddhj.order-item.backfill=true 时，启动后在后台补录一次历史订单明细
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillEnabled) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                int count = backfill(backfillFromId);
+                log.info("历史订单明细补录完成，共 {} 个订单，可关闭 ddhj.order-item.backfill", count);
+            } catch (RuntimeException e) {
+                log.error("历史订单明细补录失败，可将 ddhj.order-item.backfill-from-id 设为日志中最后的订单ID后重启继续", e);
+            }
+        }, "order-item-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 按订单ID顺序为尚未生成明细的历史订单补录明细
+     * 每批按主键范围读取订单，再用订单明细表的 order_id 索引找出已有明细的订单跳过
+     *
+     * @param fromId 从大于该ID的订单开始
+     * @return 补录的订单数
+     */
+    public int backfill(long fromId) {
+        int count = 0;
+        long lastId = fromId;
+        while (true) {
+            LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
+            wrapper.gt(Order::getId, lastId)
+                    .orderByAsc(Order::getId)
+                    .last("LIMIT " + BACKFILL_BATCH_SIZE);
+            List<Order> orders = orderMapper.selectList(wrapper);
+            if (orders.isEmpty()) {
+                break;
+            }
+            lastId = orders.get(orders.size() - 1).getId();
+
+            Set<Long> existing = new HashSet<>(orderItemMapper.selectOrderIdsWithItems(
+                    orders.stream().map(Order::getId).toList()));
+            List<OrderItem> items = new ArrayList<>();
+            for (Order order : orders) {
+                if (existing.contains(order.getId())) {
+                    continue;
+                }
+                try {
+                    for (OrderItem item : parseItems(order)) {
+                        item.setOrderId(order.getId());
+                        item.setOrderDate(order.getOrderDate());
+                        items.add(item);
+                    }
+                    count++;
+                } catch (IllegalArgumentException e) {
+                    log.warn("订单 {} 明细解析失败，跳过补录: {}", order.getOrderNumber(), e.getMessage());
+                }
+            }
+            if (!items.isEmpty()) {
+                // 历史订单没有记录单价时留空，不用当前售价代替
+                orderItemMapper.insertBatch(items, false);
+            }
+            log.info("历史订单明细已补录至订单ID {}", lastId);
+        }
+        return count;
+    }
+}
@@ -2,17 +2,26 @@ package com.ddhj.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ddhj.common.CursorPage;
+import com.ddhj.common.OrderNumberGenerator;
+import com.ddhj.dto.OrderSummary;
 import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItem;
 import com.ddhj.mapper.OrderMapper;
+import com.ddhj.mapper.OrderNumberRegistryMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.TreeMap;
 
 @Service
 public class OrderService {
@@ -23,54 +32,221 @@ public class OrderService {
     @Resource
     private SpecificationService specificationService;
 
-    public String generateOrderNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String random = String.format("%06d", new Random().nextInt(1000000));
-        return timestamp + random;
-    }
+    @Resource
+    private HotInventoryService hotInventoryService;
+
+    @Resource
+    private RevenueRollupService revenueRollupService;
+
+    @Resource
+    private OrderItemService orderItemService;
+
+    @Resource
+    private LeaderboardService leaderboardService;
+
+    @Resource
+    private OrderNumberGenerator orderNumberGenerator;
+
+    @Resource
+    private OrderNumberRegistryMapper orderNumberRegistryMapper;
+
+    @Resource
+    private MeterRegistry meterRegistry;
 
     @Transactional(rollbackFor = Exception.class)
     public boolean createOrder(Order order) {
+        fillDefaults(order);
+
+        List<OrderItem> items = orderItemService.parseItems(order);
+        orderNumberRegistryMapper.insertBatch(List.of(order));
+        reserveStock(items);
+        // 汇总行和商品日销量在写入订单之前累加，与重建的加锁顺序一致，见 RevenueRollupService.rebuild
+        revenueRollupService.recordOrder(order);
+        leaderboardService.recordItems(items);
+
+        boolean success = orderMapper.insert(order) > 0;
+        if (success) {
+            orderItemService.saveItems(order, items);
+            evictSpecificationCache(items);
+            countCreated("single", 1);
+        } else {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+
+        return success;
+    }
+
+    /**
+     * 在一个事务中批量创建订单：多行插入订单与明细，按规格汇总后一次扣减库存
+     * 任一规格库存不足或订单号冲突时整批回滚，由调用方决定是否逐单重试
+     *
+     * @param orders 已填充订单号和下单日期的订单
+     * @param items  与 orders 一一对应的已解析明细
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void createOrders(List<Order> orders, List<List<OrderItem>> items) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<OrderItem> allItems = new ArrayList<>();
+        items.forEach(allItems::addAll);
+        orderNumberRegistryMapper.insertBatch(orders);
+        reserveStock(allItems);
+        revenueRollupService.recordOrders(orders);
+        leaderboardService.recordItems(allItems);
+
+        orderMapper.insertBatch(orders);
+
+        for (int i = 0; i < orders.size(); i++) {
+            for (OrderItem item : items.get(i)) {
+                item.setOrderId(orders.get(i).getId());
+                item.setOrderDate(orders.get(i).getOrderDate());
+            }
+        }
+        orderItemService.saveItems(allItems);
+        evictSpecificationCache(allItems);
+        countCreated("batch", orders.size());
+    }
+
+    public void fillDefaults(Order order) {
         if (order.getOrderNumber() == null || order.getOrderNumber().isEmpty()) {
-            order.setOrderNumber(generateOrderNumber());
+            order.setOrderNumber(orderNumberGenerator.next());
         }
         if (order.getOrderDate() == null) {
             order.setOrderDate(LocalDateTime.now());
         }
+    }
 
-        boolean success = orderMapper.insert(order) > 0;
-
-        if (success && order.getItems() != null) {
-            for (Map.Entry<String, Object> entry : order.getItems().entrySet()) {
-                String key = entry.getKey();
-                if ("notes".equals(key))
-                    continue;
-
-                Object value = entry.getValue();
-                if (value instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> itemsList = (List<Map<String, Object>>) value;
-                    for (Map<String, Object> item : itemsList) {
-                        Object specIdObj = item.get("规格id");
-                        Object quantityObj = item.get("购买数量");
-
-                        if (specIdObj != null) {
-                            Long specId = Long.parseLong(specIdObj.toString());
-                            int quantity = Integer.parseInt(quantityObj.toString());
-                            if (!specificationService.deductStock(specId, quantity)) {
-                                throw new RuntimeException("商品库存不足，下单失败");
-                            }
-                        }
-                    }
-                }
+    /**
+     * 按规格汇总后一次性扣减库存，任一规格不足则抛出异常使事务回滚
+     */
+    private void reserveStock(List<OrderItem> items) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : items) {
+            if (item.getSpecId() != null) {
+                quantities.merge(item.getSpecId(), item.getQuantity(), Integer::sum);
             }
         }
+        Map<Long, Integer> hotQuantities = hotInventoryService.reserve(quantities);
+        if (hotQuantities == null) {
+            meterRegistry.counter("ddhj.stock.deduction.failures", "inventory", "hot").increment();
+            throw new RuntimeException("商品库存不足，下单失败");
+        }
+        if (!specificationService.deductStock(quantities)) {
+            meterRegistry.counter("ddhj.stock.deduction.failures", "inventory", "db").increment();
+            throw new RuntimeException("商品库存不足，下单失败");
+        }
+        if (!hotInventoryService.absorbDirectDeduction(quantities)) {
+            meterRegistry.counter("ddhj.stock.deduction.failures", "inventory", "hot").increment();
+            throw new RuntimeException("商品库存不足，下单失败");
+        }
+        for (OrderItem item : items) {
+            item.setStockDeferred(hotQuantities.containsKey(item.getSpecId()) ? 1 : 0);
+        }
+    }
 
-        return success;
+    /**
+     * 事务提交后再计数，回滚的订单不计入
+     */
+    private void countCreated(String mode, int count) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                meterRegistry.counter("ddhj.orders.created", "mode", mode).increment(count);
+            }
+        });
+    }
+
+    private void evictSpecificationCache(List<OrderItem> items) {
+        for (OrderItem item : items) {
+            if (item.getSpecId() != null) {
+                specificationService.evictStockCache(item.getSpecId(), item.getProductId());
+            }
+        }
     }
 
+    @Transactional(readOnly = true)
     public Page<Order> getOrderList(Integer pageNum, Integer pageSize, LocalDateTime startDate, LocalDateTime endDate) {
         Page<Order> page = new Page<>(pageNum, pageSize);
+        LambdaQueryWrapper<Order> wrapper = dateRange(startDate, endDate);
+        wrapper.orderByDesc(Order::getOrderDate);
+        return orderMapper.selectPage(page, wrapper);
+    }
+
+    /**
+     * 按 (下单日期, id) 倒序的游标分页
+     *
+     * @param cursor    上一页返回的游标，首页传 null
+     * @param withCount 是否统计总数
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Order> getOrderListByCursor(String cursor, Integer pageSize, LocalDateTime startDate,
+                                                  LocalDateTime endDate, boolean withCount) {
+        pageSize = Math.min(pageSize, CursorPage.MAX_PAGE_SIZE);
+        LambdaQueryWrapper<Order> wrapper = dateRange(startDate, endDate);
+
+        CursorPage<Order> page = new CursorPage<>();
+        if (withCount) {
+            page.setTotal(orderMapper.selectCount(wrapper));
+        }
+
+        if (cursor != null && !cursor.isEmpty()) {
+            CursorPage.Key key = CursorPage.decodeCursor(cursor);
+            wrapper.and(w -> w.lt(Order::getOrderDate, key.time())
+                    .or(o -> o.eq(Order::getOrderDate, key.time()).lt(Order::getId, key.id())));
+        }
+        wrapper.orderByDesc(Order::getOrderDate)
+                .orderByDesc(Order::getId)
+                .last("LIMIT " + (pageSize + 1));
+        List<Order> records = orderMapper.selectList(wrapper);
+
+        if (records.size() > pageSize) {
+            records = records.subList(0, pageSize);
+            Order last = records.get(pageSize - 1);
+            page.setNextCursor(CursorPage.encodeCursor(last.getOrderDate(), last.getId()));
+        }
+        page.setRecords(records);
+        return page;
+    }
+
+    /**
+     * 订单摘要列表，只查询列表展示需要的列，不读取和解析商品明细
+     */
+    @Transactional(readOnly = true)
+    public Page<OrderSummary> getOrderSummaries(Integer pageNum, Integer pageSize, LocalDateTime startDate,
+                                                LocalDateTime endDate) {
+        return orderMapper.selectSummaryPage(new Page<>(pageNum, pageSize), startDate, endDate);
+    }
+
+    /**
+     * 按 (下单日期, id) 倒序游标分页的订单摘要，游标与 getOrderListByCursor 通用
+     *
+     * @param cursor    上一页返回的游标，首页传 null
+     * @param withCount 是否统计总数
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummary> getOrderSummariesByCursor(String cursor, Integer pageSize, LocalDateTime startDate,
+                                                              LocalDateTime endDate, boolean withCount) {
+        pageSize = Math.min(pageSize, CursorPage.MAX_PAGE_SIZE);
+        CursorPage.Key key = cursor == null || cursor.isEmpty() ? null : CursorPage.decodeCursor(cursor);
+
+        CursorPage<OrderSummary> page = new CursorPage<>();
+        if (withCount) {
+            page.setTotal(orderMapper.selectCount(dateRange(startDate, endDate)));
+        }
+
+        List<OrderSummary> records = orderMapper.selectSummaries(startDate, endDate,
+                key == null ? null : key.time(), key == null ? null : key.id(), pageSize + 1);
+        if (records.size() > pageSize) {
+            records = records.subList(0, pageSize);
+            OrderSummary last = records.get(pageSize - 1);
+            page.setNextCursor(CursorPage.encodeCursor(last.getOrderDate(), last.getId()));
+        }
+        page.setRecords(records);
+        return page;
+    }
+
+    private static LambdaQueryWrapper<Order> dateRange(LocalDateTime startDate, LocalDateTime endDate) {
         LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
         if (startDate != null) {
             wrapper.ge(Order::getOrderDate, startDate);
@@ -78,21 +254,44 @@ public class OrderService {
         if (endDate != null) {
             wrapper.le(Order::getOrderDate, endDate);
         }
-        wrapper.orderByDesc(Order::getOrderDate);
-        return orderMapper.selectPage(page, wrapper);
+        return wrapper;
     }
 
+    /**
+     * 查询订单详情，订单表中没有时查询归档表
+     */
     public Order getOrderById(Long id) {
-        return orderMapper.selectById(id);
+        Order order = orderMapper.selectById(id);
+        return order != null ? order : orderMapper.selectArchivedById(id);
     }
 
+    /**
+     * 按订单号查询订单详情，订单表中没有时查询归档表
+     */
     public Order getOrderByNumber(String orderNumber) {
         LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Order::getOrderNumber, orderNumber);
-        return orderMapper.selectOne(wrapper);
+        wrapper.eq(Order::getOrderNumber, orderNumber)
+                .orderByAsc(Order::getOrderDate)
+                .last("LIMIT 1");
+        Order order = orderMapper.selectOne(wrapper);
+        return order != null ? order : orderMapper.selectArchivedByNumber(orderNumber);
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public boolean deleteOrder(Long id) {
-        return orderMapper.deleteById(id) > 0;
+        Order order = orderMapper.selectById(id);
+        if (order == null) {
+            return false;
+        }
+        revenueRollupService.revertOrder(order);
+        leaderboardService.revertItems(orderItemService.listItems(id));
+        boolean success = orderMapper.deleteById(id) > 0;
+        if (success) {
+            orderItemService.deleteItems(id);
+        } else {
+            // 已被并发删除，撤销上面的扣除
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+        return success;
     }
 }
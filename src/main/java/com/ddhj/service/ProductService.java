@@ -2,12 +2,23 @@ package com.ddhj.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ddhj.common.CatalogChangedEvent;
+import com.ddhj.common.CursorPage;
+import com.ddhj.config.CacheConfig;
+import com.ddhj.dto.ProductCard;
+import com.ddhj.dto.ProductWithSpecs;
 import com.ddhj.entity.Product;
+import com.ddhj.entity.Specification;
 import com.ddhj.mapper.ProductMapper;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
-import java.util.List;
+import java.util.*;
 
 @Service
 public class ProductService {
@@ -15,33 +26,203 @@ public class ProductService {
     @Resource
     private ProductMapper productMapper;
     
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Resource
+    private ImageService imageService;
+    
+    @Resource
+    private SpecificationService specificationService;
+    
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_PAGE, key = "#categoryId + ':' + #pageNum + ':' + #pageSize")
     public Page<Product> getProductList(Long categoryId, Integer pageNum, Integer pageSize) {
         Page<Product> page = new Page<>(pageNum, pageSize);
-        LambdaQueryWrapper<Product> wrapper = new LambdaQueryWrapper<>();
-        if (categoryId != null && categoryId > 0) {
-            wrapper.eq(Product::getCategoryId, categoryId);
-        }
+        LambdaQueryWrapper<Product> wrapper = categoryFilter(categoryId);
         wrapper.orderByDesc(Product::getCreateTime);
         return productMapper.selectPage(page, wrapper);
     }
     
+    /**
+     * 按 (创建时间, id) 倒序的游标分页
+     *
+     * @param cursor    上一页返回的游标，首页传 null
+     * @param withCount 是否统计总数
+     */
+    public CursorPage<Product> getProductListByCursor(Long categoryId, String cursor, Integer pageSize,
+                                                      boolean withCount) {
+        pageSize = Math.min(pageSize, CursorPage.MAX_PAGE_SIZE);
+        LambdaQueryWrapper<Product> wrapper = categoryFilter(categoryId);
+
+        CursorPage<Product> page = new CursorPage<>();
+        if (withCount) {
+            page.setTotal(productMapper.selectCount(wrapper));
+        }
+
+        if (cursor != null && !cursor.isEmpty()) {
+            CursorPage.Key key = CursorPage.decodeCursor(cursor);
+            wrapper.and(w -> w.lt(Product::getCreateTime, key.time())
+                    .or(o -> o.eq(Product::getCreateTime, key.time()).lt(Product::getId, key.id())));
+        }
+        wrapper.orderByDesc(Product::getCreateTime)
+                .orderByDesc(Product::getId)
+                .last("LIMIT " + (pageSize + 1));
+        List<Product> records = productMapper.selectList(wrapper);
+
+        if (records.size() > pageSize) {
+            records = records.subList(0, pageSize);
+            Product last = records.get(pageSize - 1);
+            page.setNextCursor(CursorPage.encodeCursor(last.getCreateTime(), last.getId()));
+        }
+        page.setRecords(records);
+        return page;
+    }
+    
+    /**
+     * 商品卡片列表，只查询列表展示需要的列，图片只取首图
+     */
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_PAGE, key = "'card:' + #categoryId + ':' + #pageNum + ':' + #pageSize")
+    public Page<ProductCard> getProductCards(Long categoryId, Integer pageNum, Integer pageSize) {
+        return productMapper.selectCardPage(new Page<>(pageNum, pageSize), categoryId);
+    }
+    
+    /**
+     * 按 (创建时间, id) 倒序游标分页的商品卡片，游标与 getProductListByCursor 通用
+     *
+     * @param cursor    上一页返回的游标，首页传 null
+     * @param withCount 是否统计总数
+     */
+    public CursorPage<ProductCard> getProductCardsByCursor(Long categoryId, String cursor, Integer pageSize,
+                                                           boolean withCount) {
+        pageSize = Math.min(pageSize, CursorPage.MAX_PAGE_SIZE);
+        CursorPage.Key key = cursor == null || cursor.isEmpty() ? null : CursorPage.decodeCursor(cursor);
+
+        CursorPage<ProductCard> page = new CursorPage<>();
+        if (withCount) {
+            page.setTotal(productMapper.selectCount(categoryFilter(categoryId)));
+        }
+
+        List<ProductCard> records = productMapper.selectCards(categoryId,
+                key == null ? null : key.time(), key == null ? null : key.id(), pageSize + 1);
+        if (records.size() > pageSize) {
+            records = records.subList(0, pageSize);
+            ProductCard last = records.get(pageSize - 1);
+            page.setNextCursor(CursorPage.encodeCursor(last.getCreateTime(), last.getId()));
+        }
+        page.setRecords(records);
+        return page;
+    }
+    
+    /**
+     * 货架页批量获取商品及规格：商品和规格各一次 IN 查询，规格优先读缓存
+     *
+     * @param productIds 不为空时按传入顺序返回这些商品，否则返回分类下最新的 limit 个商品
+     */
+    public List<ProductWithSpecs> getProductsWithSpecs(Long categoryId, List<Long> productIds, int limit) {
+        List<ProductCard> cards;
+        if (productIds != null && !productIds.isEmpty()) {
+            Map<Long, ProductCard> byId = new HashMap<>();
+            for (ProductCard card : productMapper.selectCardsByIds(new LinkedHashSet<>(productIds))) {
+                byId.put(card.getId(), card);
+            }
+            cards = productIds.stream().distinct().map(byId::get).filter(Objects::nonNull).toList();
+        } else {
+            cards = productMapper.selectCards(categoryId, null, null, limit);
+        }
+
+        Map<Long, List<Specification>> specifications = specificationService.getSpecificationsByProductIds(
+                cards.stream().map(ProductCard::getId).toList());
+        List<ProductWithSpecs> result = new ArrayList<>(cards.size());
+        for (ProductCard card : cards) {
+            ProductWithSpecs item = new ProductWithSpecs();
+            item.setProduct(card);
+            item.setSpecifications(specifications.get(card.getId()));
+            result.add(item);
+        }
+        return result;
+    }
+    
+    @Cacheable(cacheNames = CacheConfig.PRODUCT, key = "#id", unless = "#result == null")
     public Product getProductById(Long id) {
         return productMapper.selectById(id);
     }
     
+    /**
+     * 一次 IN 查询批量获取商品，已删除或不存在的商品不返回
+     */
+    public List<Product> getProductsByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return productMapper.selectBatchIds(ids);
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_PAGE, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_LIST, allEntries = true)
+    })
+    @Transactional(rollbackFor = Exception.class)
     public boolean addProduct(Product product) {
-        return productMapper.insert(product) > 0;
+        boolean success = productMapper.insert(product) > 0;
+        if (success) {
+            imageService.updateReferences(product.getImages(), null);
+            eventPublisher.publishEvent(CatalogChangedEvent.INSTANCE);
+        }
+        return success;
     }
     
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT, key = "#product.id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_PAGE, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_LIST, allEntries = true)
+    })
+    @Transactional(rollbackFor = Exception.class)
     public boolean updateProduct(Product product) {
-        return productMapper.updateById(product) > 0;
+        Product existing = product.getImages() == null ? null : productMapper.selectImagesForUpdate(product.getId());
+        boolean success = productMapper.updateById(product) > 0;
+        if (success) {
+            if (existing != null) {
+                imageService.updateReferences(product.getImages(), existing.getImages());
+            }
+            eventPublisher.publishEvent(CatalogChangedEvent.INSTANCE);
+        }
+        return success;
     }
     
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_PAGE, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_LIST, allEntries = true)
+    })
+    @Transactional(rollbackFor = Exception.class)
     public boolean deleteProduct(Long id) {
-        return productMapper.deleteById(id) > 0;
+        Product existing = productMapper.selectImagesForUpdate(id);
+        if (existing == null) {
+            return false;
+        }
+        boolean success = productMapper.deleteById(id) > 0;
+        if (success) {
+            imageService.updateReferences(null, existing.getImages());
+            eventPublisher.publishEvent(CatalogChangedEvent.INSTANCE);
+        }
+        return success;
     }
     
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_LIST, key = "'all'")
     public List<Product> getAllProducts() {
         return productMapper.selectList(null);
     }
+    
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_LIST, key = "'cards'")
+    public List<ProductCard> getAllProductCards() {
+        return productMapper.selectCards(null, null, null, null);
+    }
+    
+    private static LambdaQueryWrapper<Product> categoryFilter(Long categoryId) {
+        LambdaQueryWrapper<Product> wrapper = new LambdaQueryWrapper<>();
+        if (categoryId != null && categoryId > 0) {
+            wrapper.eq(Product::getCategoryId, categoryId);
+        }
+        return wrapper;
+    }
 }
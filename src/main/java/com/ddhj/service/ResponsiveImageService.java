@@ -0,0 +1,287 @@
+package com.ddhj.service;
+
+import lombok.extern.slf4j.Slf4j;
+import net.coobird.thumbnailator.Thumbnails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 按宽度、质量和客户端支持的格式输出图片
+ * <p>
+ * 派生图写入磁盘缓存目录，总大小超过上限时按最近访问时间淘汰。
+ * 宽度和质量都会对齐到固定档位，避免任意参数撑爆缓存。
+ * 先由 resolve 根据原图和参数算出 ETag，调用方可在生成派生图之前返回 304；输出时再由 open 生成并打开文件。
+ */
+@Slf4j
+@Service
+public class ResponsiveImageService {
+
+    private static final String CACHE_DIR = ".cache";
+
+    private static final int[] WIDTHS = {160, 320, 480, 640, 800, 1080, 1440};
+
+    private static final int DEFAULT_QUALITY = 80;
+
+    private static final Pattern FILENAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]+\\.[A-Za-z0-9]+");
+
+    @Value("${ddhj.image.cache-max-size:512MB}")
+    private DataSize cacheMaxSize;
+
+    private File cacheDir;
+
+    private final AtomicLong cacheSize = new AtomicLong();
+
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    /**
+     * 正在生成的派生图，避免并发请求重复处理
+     */
+    private final Map<String, CompletableFuture<File>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        cacheDir = new File(new File(System.getProperty("user.dir"), ImageService.UPLOAD_DIR), CACHE_DIR);
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+        try (Stream<Path> files = Files.list(cacheDir.toPath())) {
+            cacheSize.set(files.mapToLong(path -> path.toFile().length()).sum());
+        }
+    }
+
+    /**
+     * 解析请求参数，确定要输出的派生图及其 ETag，不生成文件
+     *
+     * @param accept 请求的 Accept 头
+     * @return 文件不存在或文件名非法时返回 null
+     */
+    public Variant resolve(String filename, Integer width, Integer quality, String accept) {
+        if (!FILENAME_PATTERN.matcher(filename).matches()) {
+            return null;
+        }
+        File source = new File(cacheDir.getParentFile(), filename);
+        if (!source.isFile()) {
+            return null;
+        }
+
+        String sourceFormat = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        String format = negotiateFormat(sourceFormat, accept);
+        int targetWidth = snapWidth(width);
+        int targetQuality = quality == null ? DEFAULT_QUALITY : Math.max(30, Math.min(90, quality / 10 * 10));
+
+        String base = filename.substring(0, filename.lastIndexOf('.'));
+        String key = base + "_w" + targetWidth + "_q" + targetQuality + "." + format;
+        String etag = "\"" + key + "-" + Long.toHexString(source.lastModified()) + "\"";
+
+        if (targetWidth == 0 && quality == null && !"webp".equals(format)) {
+            return new Variant(source, null, 0, 0, null, mimeType(normalize(sourceFormat)), etag);
+        }
+        return new Variant(source, key, targetWidth, targetQuality, format, mimeType(format), etag);
+    }
+
+    /**
+     * 要输出的文件：原图或缓存目录中的派生图
+     */
+    public File fileOf(Variant variant) {
+        return variant.isOriginal() ? variant.source() : new File(cacheDir, variant.key());
+    }
+
+    /**
+     * 打开要输出的文件，派生图不存在时先生成
+     * 返回已打开的通道，之后即使派生图被淘汰删除，也能读完已打开的文件
+     */
+    public FileChannel open(Variant variant) throws IOException {
+        if (variant.isOriginal()) {
+            return FileChannel.open(variant.source().toPath());
+        }
+        File cached = fileOf(variant);
+        for (int attempt = 0; ; attempt++) {
+            if (!cached.isFile()) {
+                generate(variant.source(), cached, variant.width(), variant.quality(), variant.format());
+            }
+            try {
+                FileChannel channel = FileChannel.open(cached.toPath());
+                cached.setLastModified(System.currentTimeMillis());
+                return channel;
+            } catch (NoSuchFileException e) {
+                // 生成后、打开前被淘汰，重新生成一次
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private File generate(File source, File dest, int width, int quality, String format) throws IOException {
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> existing = inFlight.putIfAbsent(dest.getName(), future);
+        if (existing != null) {
+            return existing.join();
+        }
+
+        try {
+            if (dest.isFile()) {
+                // 其他请求刚生成完
+                future.complete(dest);
+                return dest;
+            }
+            BufferedImage image = ImageIO.read(source);
+            if (image == null) {
+                throw new IOException("无法识别的图片: " + source.getName());
+            }
+            double scale = width == 0 || image.getWidth() <= width ? 1.0 : (double) width / image.getWidth();
+
+            Path tmp = Files.createTempFile(cacheDir.toPath(), ".derived", ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(tmp)) {
+                    Thumbnails.of(image)
+                            .scale(scale)
+                            .outputFormat(format)
+                            .outputQuality(quality / 100f)
+                            .toOutputStream(out);
+                }
+                long length = Files.size(tmp);
+                // 覆盖已有文件时只计入差值
+                long replaced = dest.isFile() ? dest.length() : 0;
+                Files.move(tmp, dest.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                cacheSize.addAndGet(length - replaced);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+
+            if (cacheSize.get() > cacheMaxSize.toBytes()) {
+                evict();
+            }
+            future.complete(dest);
+            return dest;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(dest.getName());
+        }
+    }
+
+    /**
+     * 删除原图及其变体（如压缩图）的全部派生图，原图被回收时调用
+     */
+    public void evictDerived(String filename) {
+        String prefix = filename.substring(0, filename.lastIndexOf('.')) + "_";
+        File[] files = cacheDir.listFiles(file -> file.isFile() && file.getName().startsWith(prefix));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            long length = file.length();
+            if (file.delete()) {
+                cacheSize.addAndGet(-length);
+            }
+        }
+    }
+
+    /**
+     * 按最近访问时间淘汰，直到缓存降到上限的 90%；已有线程在淘汰时直接返回
+     */
+    private void evict() {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            long target = cacheMaxSize.toBytes() * 9 / 10;
+            if (cacheSize.get() <= target) {
+                return;
+            }
+            // 跳过正在写入的临时文件
+            File[] files = cacheDir.listFiles(file -> file.isFile() && !file.getName().startsWith("."));
+            if (files == null) {
+                return;
+            }
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File file : files) {
+                if (cacheSize.get() <= target) {
+                    break;
+                }
+                long length = file.length();
+                if (file.delete()) {
+                    cacheSize.addAndGet(-length);
+                }
+            }
+            log.info("图片缓存淘汰完成，当前大小 {} 字节", cacheSize.get());
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    private String negotiateFormat(String sourceFormat, String accept) {
+        if (accept != null && accept.contains("image/webp") && ImageIO.getImageWritersByFormatName("webp").hasNext()) {
+            return "webp";
+        }
+        if ("png".equals(sourceFormat) || "gif".equals(sourceFormat)) {
+            return "png";
+        }
+        return "jpg";
+    }
+
+    private int snapWidth(Integer width) {
+        if (width == null || width <= 0) {
+            return 0;
+        }
+        for (int candidate : WIDTHS) {
+            if (candidate >= width) {
+                return candidate;
+            }
+        }
+        return 0;
+    }
+
+    private String normalize(String format) {
+        return "jpeg".equals(format) ? "jpg" : format;
+    }
+
+    private String mimeType(String format) {
+        return switch (format) {
+            case "webp" -> "image/webp";
+            case "png" -> "image/png";
+            case "gif" -> "image/gif";
+            case "bmp" -> "image/bmp";
+            default -> "image/jpeg";
+        };
+    }
+
+    /**
+     * 要输出的图片：原图，或由 key 指定的缓存派生图
+     */
+    public record Variant(File source, String key, int width, int quality, String format, String contentType,
+                          String etag) {
+
+        /**
+         * 不需要转换，直接输出原图
+         */
+        public boolean isOriginal() {
+            return key == null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ddhj.service;
+
+import com.ddhj.entity.Order;
+import com.ddhj.mapper.RevenueDailyMapper;
+import com.ddhj.mapper.RevenueHourlyMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 收入汇总表维护
+ */
+@Service
+public class RevenueRollupService {
+
+    @Resource
+    private RevenueHourlyMapper revenueHourlyMapper;
+
+    @Resource
+    private RevenueDailyMapper revenueDailyMapper;
+
+    /**
+     * 将订单计入汇总表，需在创建订单的事务中、写入订单之前调用
+     */
+    public void recordOrder(Order order) {
+        accumulate(order.getOrderDate(), order.getPaidAmount(), 1);
+    }
+
+    /**
+     * 将一批订单按小时和日期汇总后计入汇总表，需在创建订单的事务中、写入订单之前调用
+     */
+    public void recordOrders(List<Order> orders) {
+        Map<LocalDateTime, double[]> hourly = new TreeMap<>();
+        Map<LocalDate, double[]> daily = new TreeMap<>();
+        for (Order order : orders) {
+            double[] hour = hourly.computeIfAbsent(order.getOrderDate().truncatedTo(ChronoUnit.HOURS), k -> new double[2]);
+            hour[0] += order.getPaidAmount();
+            hour[1]++;
+            double[] day = daily.computeIfAbsent(order.getOrderDate().toLocalDate(), k -> new double[2]);
+            day[0] += order.getPaidAmount();
+            day[1]++;
+        }
+        hourly.forEach((statHour, sum) -> revenueHourlyMapper.accumulate(statHour, sum[0], (int) sum[1]));
+        daily.forEach((statDate, sum) -> revenueDailyMapper.accumulate(statDate, sum[0], (int) sum[1]));
+    }
+
+    /**
+     * 从汇总表中扣除订单，需在删除订单的事务中、删除订单之前调用
+     */
+    public void revertOrder(Order order) {
+        accumulate(order.getOrderDate(), -order.getPaidAmount(), -1);
+    }
+
+    /**
+     * 根据订单表重建 [startDate, endDate] 内的汇总数据
+     * 重建期间会锁住对应的汇总行，建议在业务低峰期执行
+     * <p>
+     * 先锁住区间内的汇总行及间隙再读订单：写订单的事务先累加汇总行，
+     * 已累加但未提交的事务使重建在加锁时等待其提交，之后的事务则等待重建提交后再累加，
+     * 每个订单只会计入一次
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void rebuild(LocalDate startDate, LocalDate endDate) {
+        LocalDate endExclusive = endDate.plusDays(1);
+        LocalDateTime startTime = startDate.atStartOfDay();
+        LocalDateTime endTime = endExclusive.atStartOfDay();
+
+        revenueHourlyMapper.lockRange(startTime, endTime);
+        revenueDailyMapper.lockRange(startDate, endExclusive);
+
+        revenueHourlyMapper.deleteRange(startTime, endTime);
+        revenueHourlyMapper.rebuildRange(startTime, endTime);
+
+        revenueDailyMapper.deleteRange(startDate, endExclusive);
+        revenueDailyMapper.rebuildRange(startTime, endTime);
+    }
+
+    private void accumulate(LocalDateTime orderDate, Double revenue, int orderCount) {
+        revenueHourlyMapper.accumulate(orderDate.truncatedTo(ChronoUnit.HOURS), revenue, orderCount);
+        revenueDailyMapper.accumulate(orderDate.toLocalDate(), revenue, orderCount);
+    }
+}
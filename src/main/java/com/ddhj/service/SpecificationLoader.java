@@ -0,0 +1,158 @@
+package com.ddhj.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ddhj.entity.Specification;
+import com.ddhj.mapper.SpecificationMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按商品ID批量加载规格
+ * <p>
+ * 并发的单个商品查询会合并为一次 IN 查询：同时进行的查询不超过 ddhj.specification.max-concurrent-batches 个，
+ * 查询期间到达的请求排队，由下一个空出名额的线程一次取走并查出。
+ * 锁只在取出排队请求时持有，查询数据库时不持有，等待的线程也不会排在数据库查询之后。
+ * 没有并发时直接查询，不额外等待。
+ */
+@Service
+public class SpecificationLoader {
+
+    @Resource
+    private SpecificationMapper specificationMapper;
+
+    /**
+     * 单次 IN 查询最多包含的商品数
+     */
+    @Value("${ddhj.specification.max-batch-size:200}")
+    private int maxBatchSize;
+
+    /**
+     * 同时进行的批量查询数上限
+     */
+    @Value("${ddhj.specification.max-concurrent-batches:2}")
+    private int maxConcurrentBatches;
+
+    private final Queue<Request> queue = new ArrayDeque<>();
+
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+
+    /**
+     * 有请求完成或查询名额空出时唤醒等待的线程
+     */
+    private final Condition dispatched = dispatchLock.newCondition();
+
+    /**
+     * 正在进行的批量查询数，由 dispatchLock 保护
+     */
+    private int inFlight;
+
+    /**
+     * 查询单个商品的规格，与同时到达的其他查询合并执行
+     */
+    public List<Specification> load(Long productId) {
+        Request request = new Request(productId, new CompletableFuture<>());
+        dispatchLock.lock();
+        try {
+            queue.add(request);
+        } finally {
+            dispatchLock.unlock();
+        }
+        while (!request.result().isDone()) {
+            List<Request> batch = takeBatch(request);
+            if (!batch.isEmpty()) {
+                dispatch(batch);
+            }
+        }
+
+        try {
+            return request.result().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * 一次查询多个商品的规格
+     *
+     * @return 商品ID -> 规格列表，没有规格的商品对应空列表
+     */
+    public Map<Long, List<Specification>> loadAll(Collection<Long> productIds) {
+        Map<Long, List<Specification>> result = new LinkedHashMap<>();
+        for (Long productId : productIds) {
+            result.put(productId, new ArrayList<>());
+        }
+        if (result.isEmpty()) {
+            return result;
+        }
+
+        LambdaQueryWrapper<Specification> wrapper = new LambdaQueryWrapper<>();
+        wrapper.in(Specification::getProductId, result.keySet())
+                .orderByAsc(Specification::getId);
+        for (Specification specification : specificationMapper.selectList(wrapper)) {
+            result.get(specification.getProductId()).add(specification);
+        }
+        return result;
+    }
+
+    /**
+     * 等到有查询名额时取出一批排队的请求；请求已被其他线程查出时返回空列表
+     */
+    private List<Request> takeBatch(Request request) {
+        List<Request> batch = new ArrayList<>();
+        dispatchLock.lock();
+        try {
+            while (!request.result().isDone() && (inFlight >= maxConcurrentBatches || queue.isEmpty())) {
+                dispatched.awaitUninterruptibly();
+            }
+            if (request.result().isDone()) {
+                return batch;
+            }
+            Set<Long> productIds = new HashSet<>();
+            Request next;
+            while ((next = queue.peek()) != null
+                    && (productIds.size() < maxBatchSize || productIds.contains(next.productId()))) {
+                batch.add(queue.poll());
+                productIds.add(next.productId());
+            }
+            inFlight++;
+            return batch;
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    private void dispatch(List<Request> batch) {
+        try {
+            Set<Long> productIds = new LinkedHashSet<>();
+            for (Request pending : batch) {
+                productIds.add(pending.productId());
+            }
+            Map<Long, List<Specification>> loaded = loadAll(productIds);
+            for (Request pending : batch) {
+                pending.result().complete(loaded.get(pending.productId()));
+            }
+        } catch (RuntimeException | Error e) {
+            for (Request pending : batch) {
+                pending.result().completeExceptionally(e);
+            }
+        } finally {
+            dispatchLock.lock();
+            try {
+                inFlight--;
+                dispatched.signalAll();
+            } finally {
+                dispatchLock.unlock();
+            }
+        }
+    }
+
+    private record Request(Long productId, CompletableFuture<List<Specification>> result) {
+    }
+}
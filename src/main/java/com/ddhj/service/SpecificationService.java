@@ -1,12 +1,26 @@
 package com.ddhj.service;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ddhj.common.CatalogChangedEvent;
+import com.ddhj.config.CacheConfig;
+import com.ddhj.dto.SpecStock;
 import com.ddhj.entity.Specification;
 import com.ddhj.mapper.SpecificationMapper;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class SpecificationService {
@@ -14,39 +28,169 @@ public class SpecificationService {
     @Resource
     private SpecificationMapper specificationMapper;
 
+    @Resource
+    private HotInventoryService hotInventoryService;
+
+    @Resource
+    private SpecificationLoader specificationLoader;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 商品规格缓存的失效次数，批量加载期间发生过失效的结果不写入缓存
+     */
+    private final AtomicLong productSpecsEvictions = new AtomicLong();
+
+    /**
+     * 缓存未命中时经 SpecificationLoader 查询，并发请求的多个商品合并为一次查询
+     */
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_SPECIFICATIONS, key = "#productId")
     public List<Specification> getSpecificationsByProductId(Long productId) {
-        LambdaQueryWrapper<Specification> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Specification::getProductId, productId);
-        return specificationMapper.selectList(wrapper);
+        return specificationLoader.load(productId);
     }
 
+    /**
+     * 批量获取多个商品的规格，缓存中没有的商品用一次查询补齐并写入缓存
+     *
+     * @return 商品ID -> 规格列表，按传入顺序
+     */
+    public Map<Long, List<Specification>> getSpecificationsByProductIds(Collection<Long> productIds) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCT_SPECIFICATIONS);
+        Map<Long, List<Specification>> result = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long productId : productIds) {
+            @SuppressWarnings("unchecked")
+            List<Specification> cached = cache == null ? null : cache.get(productId, List.class);
+            result.put(productId, cached);
+            if (cached == null) {
+                missing.add(productId);
+            }
+        }
+
+        long generation = productSpecsEvictions.get();
+        specificationLoader.loadAll(missing).forEach((productId, specifications) -> {
+            result.put(productId, specifications);
+            if (cache != null) {
+                // 先写入再检查：失效总是先计数再清除，查询期间发生的失效不会被旧数据覆盖
+                cache.putIfAbsent(productId, specifications);
+                if (productSpecsEvictions.get() != generation) {
+                    cache.evictIfPresent(productId);
+                }
+            }
+        });
+        return result;
+    }
+
+    @Cacheable(cacheNames = CacheConfig.SPECIFICATION, key = "#id", unless = "#result == null")
     public Specification getSpecificationById(Long id) {
         return specificationMapper.selectById(id);
     }
 
     public boolean addSpecification(Specification specification) {
-        return specificationMapper.insert(specification) > 0;
+        boolean success = specificationMapper.insert(specification) > 0;
+        if (success) {
+            evictCache(specification.getId(), specification.getProductId());
+        }
+        return success;
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public boolean updateSpecification(Specification specification) {
-        return specificationMapper.updateById(specification) > 0;
+        SpecStock existing = specificationMapper.selectStockById(specification.getId());
+        if (existing == null) {
+            return false;
+        }
+        if (specification.getStock() != null) {
+            hotInventoryService.adjustStock(specification.getId(), specification.getStock());
+        }
+        boolean success = specificationMapper.updateById(specification) > 0;
+        evictCache(existing.getId(), existing.getProductId());
+        if (specification.getProductId() != null) {
+            evictCache(existing.getId(), specification.getProductId());
+        }
+        return success;
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public boolean deleteSpecification(Long id) {
-        return specificationMapper.deleteById(id) > 0;
+        SpecStock existing = specificationMapper.selectStockById(id);
+        if (existing == null) {
+            return false;
+        }
+        boolean success = specificationMapper.deleteById(id) > 0;
+        evictCache(id, existing.getProductId());
+        return success;
     }
 
     public boolean checkStock(Long specId, Integer quantity) {
-        Specification spec = specificationMapper.selectById(specId);
+        Integer available = hotInventoryService.getAvailable(specId);
+        if (available != null) {
+            return available >= quantity;
+        }
+        SpecStock spec = specificationMapper.selectStockById(specId);
         return spec != null && spec.getStock() >= quantity;
     }
 
+    /**
+     * 规格变化后清除规格缓存并通知目录变更，事务中调用时在提交后生效
+     */
+    public void evictCache(Long specId, Long productId) {
+        evictCache(specId, productId, CatalogChangedEvent.INSTANCE);
+    }
+
+    /**
+     * 下单、删单扣减或恢复库存后清除规格缓存，目录快照合并后定期刷新
+     */
+    public void evictStockCache(Long specId, Long productId) {
+        evictCache(specId, productId, CatalogChangedEvent.STOCK);
+    }
+
+    private void evictCache(Long specId, Long productId, CatalogChangedEvent event) {
+        eventPublisher.publishEvent(event);
+        Cache specCache = cacheManager.getCache(CacheConfig.SPECIFICATION);
+        if (specCache != null) {
+            specCache.evict(specId);
+        }
+        Cache productSpecsCache = cacheManager.getCache(CacheConfig.PRODUCT_SPECIFICATIONS);
+        if (productSpecsCache != null && productId != null) {
+            afterCommit(() -> {
+                productSpecsEvictions.incrementAndGet();
+                productSpecsCache.evictIfPresent(productId);
+            });
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     public boolean deductStock(Long specId, Integer quantity) {
-        Specification spec = specificationMapper.selectById(specId);
-        if (spec == null || spec.getStock() < quantity) {
-            return false;
+        return specificationMapper.deductStock(specId, quantity) > 0;
+    }
+
+    /**
+     * 在一条语句中扣减多个规格的库存，任一规格库存不足即返回 false
+     * 调用方需在事务中执行，并在返回 false 时回滚
+     *
+     * @param quantities 规格ID -> 扣减数量
+     */
+    public boolean deductStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return true;
         }
-        spec.setStock(spec.getStock() - quantity);
-        return specificationMapper.updateById(spec) > 0;
+        return specificationMapper.deductStockBatch(quantities) == quantities.size();
     }
 }
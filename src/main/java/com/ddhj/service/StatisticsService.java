@@ -1,29 +1,29 @@
 package com.ddhj.service;
 
-import com.alibaba.fastjson2.JSONArray;
-import com.alibaba.fastjson2.JSONObject;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.ddhj.entity.Order;
-import com.ddhj.entity.Product;
-import com.ddhj.mapper.OrderMapper;
-import com.ddhj.mapper.ProductMapper;
+import com.ddhj.dto.HotProduct;
+import com.ddhj.dto.RevenueBucket;
+import com.ddhj.mapper.RevenueDailyMapper;
+import com.ddhj.mapper.RevenueHourlyMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.IntFunction;
 
 @Service
 public class StatisticsService {
 
     @Resource
-    private OrderMapper orderMapper;
+    private LeaderboardService leaderboardService;
 
     @Resource
-    private ProductMapper productMapper;
+    private RevenueHourlyMapper revenueHourlyMapper;
+
+    @Resource
+    private RevenueDailyMapper revenueDailyMapper;
 
     /**
      * 获取收入统计
@@ -31,55 +31,25 @@ public class StatisticsService {
      * @param date 日期
      * @param mode 模式：hour(分时), day(日), month(月)
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> getRevenueStatistics(LocalDate date, String mode) {
         Map<String, Object> result = new HashMap<>();
 
         if ("hour".equals(mode)) {
             // 分时统计 (0:00-23:00)
-            List<Map<String, Object>> hourlyData = new ArrayList<>();
-            for (int hour = 0; hour <= 23; hour++) {
-                LocalDateTime startTime = LocalDateTime.of(date, LocalTime.of(hour, 0));
-                LocalDateTime endTime = LocalDateTime.of(date, LocalTime.of(hour, 59, 59));
-
-                Double revenue = getRevenueBetween(startTime, endTime);
-                Map<String, Object> item = new HashMap<>();
-                item.put("time", hour + ":00");
-                item.put("revenue", revenue);
-                hourlyData.add(item);
-            }
-            result.put("data", hourlyData);
+            LocalDateTime startTime = date.atStartOfDay();
+            List<RevenueBucket> buckets = revenueHourlyMapper.selectRevenueByHour(startTime, startTime.plusDays(1));
+            result.put("data", fillBuckets(buckets, 0, 23, hour -> hour + ":00"));
         } else if ("day".equals(mode)) {
             // 日统计 (当月每一天)
-            List<Map<String, Object>> dailyData = new ArrayList<>();
-            int daysInMonth = date.lengthOfMonth();
-            for (int day = 1; day <= daysInMonth; day++) {
-                LocalDate currentDate = LocalDate.of(date.getYear(), date.getMonth(), day);
-                LocalDateTime startTime = currentDate.atStartOfDay();
-                LocalDateTime endTime = currentDate.atTime(23, 59, 59);
-
-                Double revenue = getRevenueBetween(startTime, endTime);
-                Map<String, Object> item = new HashMap<>();
-                item.put("time", day + "日");
-                item.put("revenue", revenue);
-                dailyData.add(item);
-            }
-            result.put("data", dailyData);
+            LocalDate startDate = date.withDayOfMonth(1);
+            List<RevenueBucket> buckets = revenueDailyMapper.selectRevenueByDay(startDate, startDate.plusMonths(1));
+            result.put("data", fillBuckets(buckets, 1, date.lengthOfMonth(), day -> day + "日"));
         } else if ("month".equals(mode)) {
             // 月统计 (当年每个月)
-            List<Map<String, Object>> monthlyData = new ArrayList<>();
-            for (int month = 1; month <= 12; month++) {
-                LocalDate firstDay = LocalDate.of(date.getYear(), month, 1);
-                LocalDate lastDay = firstDay.withDayOfMonth(firstDay.lengthOfMonth());
-                LocalDateTime startTime = firstDay.atStartOfDay();
-                LocalDateTime endTime = lastDay.atTime(23, 59, 59);
-
-                Double revenue = getRevenueBetween(startTime, endTime);
-                Map<String, Object> item = new HashMap<>();
-                item.put("time", month + "月");
-                item.put("revenue", revenue);
-                monthlyData.add(item);
-            }
-            result.put("data", monthlyData);
+            LocalDate startDate = date.withDayOfYear(1);
+            List<RevenueBucket> buckets = revenueDailyMapper.sumRevenueByMonth(startDate, startDate.plusYears(1));
+            result.put("data", fillBuckets(buckets, 1, 12, month -> month + "月"));
         }
 
         return result;
@@ -88,92 +58,44 @@ public class StatisticsService {
     /**
      * 获取指定日期总收入
      */
+    @Transactional(readOnly = true)
     public Double getDayTotalRevenue(LocalDate date) {
-        LocalDateTime startTime = date.atStartOfDay();
-        LocalDateTime endTime = date.atTime(23, 59, 59);
-        return getRevenueBetween(startTime, endTime);
+        return revenueDailyMapper.sumRevenue(date, date.plusDays(1));
     }
 
     /**
-     * 获取热销商品榜单
+     * 获取指定日期订单数
      */
-    public List<Map<String, Object>> getHotProducts(LocalDate startDate, LocalDate endDate, Integer limit) {
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
-
-        LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
-        wrapper.ge(Order::getOrderDate, startDateTime)
-                .le(Order::getOrderDate, endDateTime);
-        List<Order> orders = orderMapper.selectList(wrapper);
-
-        // 统计商品销量
-        Map<Long, Integer> productSalesMap = new HashMap<>();
-        for (Order order : orders) {
-            Map<String, Object> items = order.getItems();
-            if (items != null) {
-                for (Map.Entry<String, Object> entry : items.entrySet()) {
-                    String productIdStr = entry.getKey();
-                    if ("notes".equals(productIdStr))
-                        continue;
+    @Transactional(readOnly = true)
+    public Long getDayOrderCount(LocalDate date) {
+        return revenueDailyMapper.sumOrderCount(date, date.plusDays(1));
+    }
 
-                    try {
-                        Long productId = Long.parseLong(productIdStr);
-                        Object value = entry.getValue();
+    /**
+     * 获取热销商品榜单
+     * 不走从库：日销量缓存在写事务提交后才失效，从读落后的从库加载会把旧数据缓存下来
+     */
+    public List<HotProduct> getHotProducts(LocalDate startDate, LocalDate endDate, Integer limit) {
+        return leaderboardService.getTop(startDate, endDate, limit);
+    }
 
-                        if (value instanceof List) {
-                            List<?> itemList = (List<?>) value;
-                            for (Object item : itemList) {
-                                if (item instanceof Map) {
-                                    Map<?, ?> itemMap = (Map<?, ?>) item;
-                                    Object quantityObj = itemMap.get("购买数量");
-                                    if (quantityObj != null) {
-                                        Integer quantity = Integer.parseInt(quantityObj.toString());
-                                        productSalesMap.put(productId,
-                                                productSalesMap.getOrDefault(productId, 0) + quantity);
-                                    }
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        // 忽略解析错误
-                    }
-                }
-            }
+    /**
+     * 将分组结果展开为连续的桶，没有订单的桶补 0
+     */
+    private List<Map<String, Object>> fillBuckets(List<RevenueBucket> buckets, int first, int last,
+                                                  IntFunction<String> label) {
+        Map<Integer, Double> revenueMap = new HashMap<>();
+        for (RevenueBucket bucket : buckets) {
+            revenueMap.put(bucket.getBucket(), bucket.getRevenue());
         }
 
-        // 排序并获取Top N
-        List<Map.Entry<Long, Integer>> sortedList = productSalesMap.entrySet().stream()
-                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
-                .limit(limit)
-                .collect(Collectors.toList());
-
-        // 获取商品详情
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (Map.Entry<Long, Integer> entry : sortedList) {
-            Product product = productMapper.selectById(entry.getKey());
-            if (product != null) {
-                Map<String, Object> item = new HashMap<>();
-                item.put("productId", product.getId());
-                item.put("productName", product.getName());
-                item.put("categoryId", product.getCategoryId());
-                item.put("images", product.getImages());
-                item.put("sellPrice", product.getSellPrice());
-                item.put("sales", entry.getValue());
-                result.add(item);
-            }
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("time", label.apply(i));
+            item.put("revenue", revenueMap.getOrDefault(i, 0.0));
+            data.add(item);
         }
-
-        return result;
-    }
-
-    private Double getRevenueBetween(LocalDateTime startTime, LocalDateTime endTime) {
-        LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
-        wrapper.ge(Order::getOrderDate, startTime)
-                .le(Order::getOrderDate, endTime);
-        List<Order> orders = orderMapper.selectList(wrapper);
-
-        return orders.stream()
-                .mapToDouble(Order::getPaidAmount)
-                .sum();
+        return data;
     }
 }
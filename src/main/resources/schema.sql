@@ -28,7 +28,9 @@ CREATE TABLE IF NOT EXISTS `product` (
     `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     PRIMARY KEY (`id`),
     INDEX `idx_category_id` (`category_id`),
-    INDEX `idx_is_delete` (`is_delete`)
+    INDEX `idx_is_delete` (`is_delete`),
+    INDEX `idx_create_time_id` (`is_delete`, `create_time`, `id`),
+    INDEX `idx_category_create_time_id` (`category_id`, `is_delete`, `create_time`, `id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='商品表';
 
 -- 规格表
@@ -46,6 +48,13 @@ CREATE TABLE IF NOT EXISTS `specification` (
     INDEX `idx_is_delete` (`is_delete`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='规格表';
 
+-- 商品目录版本表（只有 id = 1 一行，分类、商品、规格变化后递增，各实例据此生成相同的目录快照 ETag）
+CREATE TABLE IF NOT EXISTS `catalog_version` (
+    `id` TINYINT NOT NULL COMMENT '固定为 1',
+    `version` BIGINT NOT NULL DEFAULT 0 COMMENT '版本号',
+    PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='商品目录版本表';
+
 -- 订单表
 CREATE TABLE IF NOT EXISTS `orders` (
     `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '订单ID',
@@ -58,8 +67,120 @@ CREATE TABLE IF NOT EXISTS `orders` (
     `is_delete` TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除(0:未删除,1:删除)',
     `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    PRIMARY KEY (`id`),
-    UNIQUE KEY `uk_order_number` (`order_number`),
+    PRIMARY KEY (`id`, `order_date`),
+    UNIQUE KEY `uk_order_number` (`order_number`, `order_date`),
     INDEX `idx_order_date` (`order_date`),
-    INDEX `idx_is_delete` (`is_delete`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表';
+    INDEX `idx_is_delete` (`is_delete`),
+    INDEX `idx_order_date_id` (`is_delete`, `order_date`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表'
+PARTITION BY RANGE COLUMNS(`order_date`) (
+    PARTITION `p_max` VALUES LESS THAN (MAXVALUE)
+);
+-- 订单表按下单月份分区，月分区由归档任务（OrderArchiveService）提前拆出，主键和唯一索引须包含分区列。
+-- 已有的未分区订单表可执行：
+-- ALTER TABLE orders DROP PRIMARY KEY, ADD PRIMARY KEY (id, order_date),
+--     DROP INDEX uk_order_number, ADD UNIQUE KEY uk_order_number (order_number, order_date),
+--     PARTITION BY RANGE COLUMNS(order_date) (PARTITION p_max VALUES LESS THAN (MAXVALUE))
+
+-- 订单号登记表（不分区，保证订单号全局唯一：订单表的唯一索引须包含分区列，只能保证同一下单时间内不重复）
+-- 与订单在同一事务中写入，删除和归档订单时保留
+CREATE TABLE IF NOT EXISTS `order_number_registry` (
+    `order_number` VARCHAR(50) NOT NULL COMMENT '订单号',
+    `order_date` DATETIME NOT NULL COMMENT '下单日期',
+    `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`order_number`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单号登记表';
+-- 已有数据库升级时执行（订单号已重复的订单只登记一次）：
+-- INSERT IGNORE INTO order_number_registry (order_number, order_date)
+--     SELECT order_number, order_date FROM orders_archive UNION ALL SELECT order_number, order_date FROM orders
+
+-- 订单归档表（超过保留期的订单整月迁入，压缩存储）
+CREATE TABLE IF NOT EXISTS `orders_archive` (
+    `id` BIGINT NOT NULL COMMENT '订单ID',
+    `order_number` VARCHAR(50) NOT NULL COMMENT '唯一订单号',
+    `items` JSON NOT NULL COMMENT '订单商品详情',
+    `total_amount` DECIMAL(10,2) NOT NULL COMMENT '订单总金额',
+    `paid_amount` DECIMAL(10,2) NOT NULL COMMENT '实付金额',
+    `notes` TEXT COMMENT '备注信息',
+    `order_date` DATETIME NOT NULL COMMENT '下单日期',
+    `is_delete` TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除(0:未删除,1:删除)',
+    `create_time` DATETIME NOT NULL COMMENT '创建时间',
+    `update_time` DATETIME NOT NULL COMMENT '更新时间',
+    `archive_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间',
+    PRIMARY KEY (`id`),
+    INDEX `idx_order_number` (`order_number`),
+    INDEX `idx_order_date` (`order_date`)
+) ENGINE=InnoDB ROW_FORMAT=COMPRESSED DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单归档表';
+
+-- 小时收入汇总表
+CREATE TABLE IF NOT EXISTS `revenue_hourly` (
+    `stat_hour` DATETIME NOT NULL COMMENT '统计小时(整点)',
+    `revenue` DECIMAL(14,2) NOT NULL DEFAULT 0 COMMENT '实付金额合计',
+    `order_count` INT NOT NULL DEFAULT 0 COMMENT '订单数',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`stat_hour`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='小时收入汇总表';
+
+-- 日收入汇总表
+CREATE TABLE IF NOT EXISTS `revenue_daily` (
+    `stat_date` DATE NOT NULL COMMENT '统计日期',
+    `revenue` DECIMAL(14,2) NOT NULL DEFAULT 0 COMMENT '实付金额合计',
+    `order_count` INT NOT NULL DEFAULT 0 COMMENT '订单数',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`stat_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='日收入汇总表';
+
+-- 订单明细表
+CREATE TABLE IF NOT EXISTS `order_item` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '明细ID',
+    `order_id` BIGINT NOT NULL COMMENT '订单ID',
+    `product_id` BIGINT NOT NULL COMMENT '商品ID',
+    `spec_id` BIGINT COMMENT '规格ID',
+    `quantity` INT NOT NULL COMMENT '购买数量',
+    `unit_price` DECIMAL(10,2) COMMENT '下单时商品售价',
+    `order_date` DATETIME NOT NULL COMMENT '下单日期(冗余自订单)',
+    `stock_deferred` TINYINT NOT NULL DEFAULT 0 COMMENT '库存是否待回写规格表(0:已回写,1:待回写)',
+    `is_delete` TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除(0:未删除,1:删除)',
+    `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    INDEX `idx_order_id` (`order_id`),
+    INDEX `idx_sales` (`is_delete`, `order_date`, `product_id`, `quantity`),
+    INDEX `idx_stock_deferred` (`stock_deferred`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单明细表';
+
+-- 订单明细归档表（随订单一起迁入）
+CREATE TABLE IF NOT EXISTS `order_item_archive` (
+    `id` BIGINT NOT NULL COMMENT '明细ID',
+    `order_id` BIGINT NOT NULL COMMENT '订单ID',
+    `product_id` BIGINT NOT NULL COMMENT '商品ID',
+    `spec_id` BIGINT COMMENT '规格ID',
+    `quantity` INT NOT NULL COMMENT '购买数量',
+    `unit_price` DECIMAL(10,2) COMMENT '下单时商品售价',
+    `order_date` DATETIME NOT NULL COMMENT '下单日期(冗余自订单)',
+    `is_delete` TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除(0:未删除,1:删除)',
+    `create_time` DATETIME NOT NULL COMMENT '创建时间',
+    `update_time` DATETIME NOT NULL COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    INDEX `idx_order_id` (`order_id`)
+) ENGINE=InnoDB ROW_FORMAT=COMPRESSED DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单明细归档表';
+
+-- 商品日销量表
+CREATE TABLE IF NOT EXISTS `product_sales_daily` (
+    `stat_date` DATE NOT NULL COMMENT '统计日期',
+    `product_id` BIGINT NOT NULL COMMENT '商品ID',
+    `sales` INT NOT NULL DEFAULT 0 COMMENT '销量',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`stat_date`, `product_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='商品日销量表';
+
+-- 图片文件表
+CREATE TABLE IF NOT EXISTS `image_file` (
+    `filename` VARCHAR(100) NOT NULL COMMENT '文件名(内容SHA-256+扩展名)',
+    `size` BIGINT NOT NULL COMMENT '文件大小(字节)',
+    `ref_count` INT NOT NULL DEFAULT 0 COMMENT '被商品图片引用的次数',
+    `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`filename`),
+    INDEX `idx_ref_count_update_time` (`ref_count`, `update_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='图片文件表';
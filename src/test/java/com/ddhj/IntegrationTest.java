@@ -0,0 +1,71 @@
+package com.ddhj;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 集成测试基类：启动完整的应用上下文，连接按 schema.sql 建表的内存 H2 库
+ * <p>
+ * 各测试类共用同一个上下文和数据库，测试只断言自己写入的数据。
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public abstract class IntegrationTest {
+
+    public static final String URL = memoryUrl("ddhj_test");
+
+    private static boolean schemaCreated;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        synchronized (IntegrationTest.class) {
+            if (!schemaCreated) {
+                createSchema(URL);
+                schemaCreated = true;
+            }
+        }
+        registry.add("spring.datasource.url", () -> URL);
+    }
+
+    /**
+     * 锁等待超时放宽到 10 秒（H2 默认 1 秒，MySQL 默认 50 秒），并发测试中排队等待同一行锁的事务不会超时失败
+     */
+    public static String memoryUrl(String name) {
+        return "jdbc:h2:mem:" + name
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+    }
+
+    /**
+     * 按 schema.sql 建表：跳过建库语句，JSON 列在 H2 中按文本存储，索引名在 H2 中全库唯一，因此去掉普通索引的名称；
+     * H2 不支持的分区和行格式定义也一并去掉
+     */
+    public static void createSchema(String url) {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            String script = StreamUtils.copyToString(new ClassPathResource("schema.sql").getInputStream(), StandardCharsets.UTF_8);
+            for (String sql : script.replaceAll("(?m)^\\s*--.*$", "").split(";")) {
+                sql = sql.trim();
+                if (sql.isEmpty() || sql.startsWith("CREATE DATABASE") || sql.startsWith("USE ")) {
+                    continue;
+                }
+                statement.execute(sql.replaceAll("\\bJSON\\b", "TEXT")
+                        .replaceAll("\\bINDEX `\\w+` \\(", "INDEX (")
+                        .replaceAll("(?s)\\s*PARTITION BY .*$", "")
+                        .replaceAll("\\s*ROW_FORMAT=\\w+", ""));
+            }
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException("初始化 H2 表结构失败", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ddhj.common;
+
+import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItems;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 接口请求体经 Jackson 直接解码的结果与数据库读取路径一致，未识别的字段原样保留
+ */
+class OrderItemsCodecTest {
+
+    private static final String ITEMS = "{\"12\":[{\"规格id\":\"3\",\"购买数量\":2,\"单价\":9.90,\"名称\":\"红色\"},"
+            + "{\"规格id\":4,\"购买数量\":1.5},7,{\"规格id\":null,\"购买数量\":99999999999}],"
+            + "\"notes\":\"尽快发货\",\"34\":{\"x\":[1,2e3,true,null]},\"56\":[]}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void jacksonMatchesStoredJson() throws Exception {
+        Order order = objectMapper.readValue("{\"orderNumber\":\"A1\",\"items\":" + ITEMS + ",\"paidAmount\":1}", Order.class);
+
+        OrderItems expected = OrderItemsCodec.read(ITEMS);
+        assertThat(order.getItems()).isEqualTo(expected);
+        assertThat(order.getItems().getProducts().get(12L)).hasSize(3);
+        assertThat(order.getOrderNumber()).isEqualTo("A1");
+        assertThat(OrderItemsCodec.write(order.getItems())).isEqualTo(OrderItemsCodec.write(expected));
+    }
+
+    @Test
+    void nonObjectIsNull() throws Exception {
+        Order order = objectMapper.readValue("{\"items\":[1,2],\"orderNumber\":\"A2\"}", Order.class);
+
+        assertThat(order.getItems()).isNull();
+        assertThat(order.getOrderNumber()).isEqualTo("A2");
+    }
+}
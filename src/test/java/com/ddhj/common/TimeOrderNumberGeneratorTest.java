@@ -0,0 +1,87 @@
+package com.ddhj.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 订单号生成器：多线程下唯一且单线程内递增，重启后从已保存的订单号之后继续
+ */
+class TimeOrderNumberGeneratorTest {
+
+    private static final int THREADS = 16;
+
+    private static final int PER_THREAD = 50_000;
+
+    @Test
+    void concurrentNumbersAreUnique() throws Exception {
+        TimeOrderNumberGenerator generator = new TimeOrderNumberGenerator(7);
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    String previous = "";
+                    boolean increasing = true;
+                    for (int j = 0; j < PER_THREAD; j++) {
+                        String number = generator.next();
+                        increasing &= number.compareTo(previous) > 0;
+                        previous = number;
+                        numbers.add(number);
+                    }
+                    return increasing;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get(1, TimeUnit.MINUTES)).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(numbers).hasSize(THREADS * PER_THREAD);
+        assertThat(numbers).allSatisfy(number -> assertThat(number).hasSize(23).containsOnlyDigits());
+    }
+
+    @Test
+    void restartResumesAfterSavedNumber() {
+        ZoneId zone = ZoneId.of("Asia/Shanghai");
+        TimeOrderNumberGenerator before = new TimeOrderNumberGenerator(3, zone);
+        String last = null;
+        for (int i = 0; i < 1000; i++) {
+            last = before.next();
+        }
+
+        // 同一秒内重启
+        TimeOrderNumberGenerator restarted = new TimeOrderNumberGenerator(3, zone);
+        assertThat(restarted.resumeAfter(last)).isTrue();
+        assertThat(restarted.next()).isGreaterThan(last);
+
+        // 时钟回拨后重启：已保存的订单号晚于当前时钟
+        String future = "2999" + last.substring(4);
+        TimeOrderNumberGenerator stepped = new TimeOrderNumberGenerator(3, zone);
+        assertThat(stepped.resumeAfter(future)).isTrue();
+        assertThat(stepped.next()).isGreaterThan(future);
+    }
+
+    @Test
+    void resumeIgnoresForeignNumbers() {
+        TimeOrderNumberGenerator generator = new TimeOrderNumberGenerator(1);
+        assertThat(generator.resumeAfter(null)).isFalse();
+        assertThat(generator.resumeAfter("ORDER-1")).isFalse();
+        assertThat(generator.resumeAfter("20261399000000001000000")).isFalse();
+        // 其他节点的订单号
+        assertThat(generator.resumeAfter("29991231235959002000000")).isFalse();
+        assertThat(generator.next()).hasSize(23).doesNotStartWith("2999");
+    }
+}
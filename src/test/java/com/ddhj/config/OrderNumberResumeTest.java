@@ -0,0 +1,55 @@
+package com.ddhj.config;
+
+import com.ddhj.IntegrationTest;
+import com.ddhj.common.TimeOrderNumberGenerator;
+import com.ddhj.mapper.OrderNumberRegistryMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.Resource;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 订单号生成器启动时只从本节点生成的合法订单号之后继续，排序更靠后的旧订单号和外部订单号不影响编号
+ */
+class OrderNumberResumeTest extends IntegrationTest {
+
+    private static final int NODE_ID = 998;
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    @Resource
+    private OrderNumberRegistryMapper orderNumberRegistryMapper;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void skipsNumbersNotGeneratedByThisNode() {
+        register("20300101000000998000001");
+        // 日期非法
+        register("20301399000000998000000");
+        // 其他节点或外部系统的订单号
+        register("29991231235959123000000");
+        register("299912312359599980000001");
+        register("99999999999999999999999");
+        register("POS-99999999");
+
+        TimeOrderNumberGenerator generator = new TimeOrderNumberGenerator(NODE_ID, ZONE);
+        assertThat(OrderNumberConfig.resume(generator, NODE_ID, orderNumberRegistryMapper)).isTrue();
+        assertThat(generator.next()).isEqualTo("20300101000001998000001");
+    }
+
+    @Test
+    void nothingToResumeFrom() {
+        TimeOrderNumberGenerator generator = new TimeOrderNumberGenerator(997, ZONE);
+        assertThat(OrderNumberConfig.resume(generator, 997, orderNumberRegistryMapper)).isFalse();
+    }
+
+    private void register(String orderNumber) {
+        jdbcTemplate.update("INSERT INTO order_number_registry (order_number, order_date) VALUES (?, '2030-01-01 00:00:00')",
+                orderNumber);
+    }
+}
@@ -0,0 +1,132 @@
+package com.ddhj.config;
+
+import com.ddhj.IntegrationTest;
+import com.ddhj.dto.Dashboard;
+import com.ddhj.dto.HotProduct;
+import com.ddhj.entity.Order;
+import com.ddhj.service.DashboardService;
+import com.ddhj.service.OrderService;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 读写分离：主库和从库是两个独立的 H2 库，从库中的订单只有只读事务能查到，统计看板的热销榜始终读主库
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReplicaRoutingDataSourceTest {
+
+    private static final String PRIMARY_URL = IntegrationTest.memoryUrl("replica_test_primary");
+
+    private static final String REPLICA_URL = IntegrationTest.memoryUrl("replica_test_replica");
+
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.of(2002, 2, 2, 12, 0);
+
+    @Resource
+    private OrderService orderService;
+
+    @Resource
+    private DashboardService dashboardService;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        IntegrationTest.createSchema(PRIMARY_URL);
+        IntegrationTest.createSchema(REPLICA_URL);
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO orders (order_number, items, total_amount, paid_amount, order_date) "
+                    + "VALUES ('REPLICA-ONLY', '{}', 10, 10, TIMESTAMP '2002-02-02 12:00:00')");
+            statement.execute("INSERT INTO revenue_daily (stat_date, revenue, order_count) VALUES (DATE '2002-02-02', 10, 1)");
+            insertSales(statement, 3);
+        }
+        // 主库的日销量比从库新
+        try (Connection connection = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            insertSales(statement, 5);
+        }
+        registry.add("spring.datasource.url", () -> PRIMARY_URL);
+        registry.add("ddhj.datasource.replica-urls", () -> REPLICA_URL);
+        // H2 没有复制状态，只检查连接是否可用
+        registry.add("ddhj.datasource.replica-lag-query", () -> "");
+    }
+
+    @Test
+    void readOnlyTransactionReadsReplica() {
+        List<Order> orders = orderService.getOrderList(1, 10, ORDER_DATE, ORDER_DATE).getRecords();
+
+        assertThat(orders).extracting(Order::getOrderNumber).containsExactly("REPLICA-ONLY");
+    }
+
+    @Test
+    void writesAndReadWriteTransactionsUsePrimary() {
+        assertThat(orderService.getOrderByNumber("REPLICA-ONLY")).isNull();
+        Long count = transactionTemplate.execute(status ->
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE order_number = 'REPLICA-ONLY'", Long.class));
+        assertThat(count).isZero();
+    }
+
+    @Test
+    void dashboardReadsHotProductsFromPrimary() {
+        LocalDate date = ORDER_DATE.toLocalDate();
+        Dashboard dashboard = dashboardService.getDashboard(date, "day", date, date, 10);
+
+        assertThat(dashboard.getDayOrderCount()).isEqualTo(1);
+        assertThat(dashboard.getHotProducts()).extracting(HotProduct::getSales).containsExactly(5);
+    }
+
+    @Test
+    void replicaIsUsableRightAfterCreation() throws SQLException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(REPLICA_URL);
+        config.setUsername("sa");
+        try (HikariDataSource primary = new HikariDataSource();
+             ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary,
+                     Map.of("replica", new HikariDataSource(config)), Duration.ofSeconds(5), "",
+                     new SimpleMeterRegistry())) {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(
+                         "SELECT COUNT(*) FROM orders WHERE order_number = 'REPLICA-ONLY'")) {
+                resultSet.next();
+                assertThat(resultSet.getLong(1)).isEqualTo(1);
+            } finally {
+                TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            }
+        }
+    }
+
+    private static void insertSales(Statement statement, int sales) throws SQLException {
+        statement.execute("INSERT INTO product (id, name, sell_price, category_id) VALUES (1001, '热销测试', 10, 1)");
+        statement.execute("INSERT INTO product_sales_daily (stat_date, product_id, sales) VALUES (DATE '2002-02-02', 1001, " + sales + ")");
+    }
+}
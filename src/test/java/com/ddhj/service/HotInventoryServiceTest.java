@@ -0,0 +1,146 @@
+package com.ddhj.service;
+
+import com.ddhj.IntegrationTest;
+import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItems;
+import com.ddhj.entity.OrderLine;
+import com.ddhj.entity.Specification;
+import com.ddhj.mapper.OrderItemMapper;
+import com.ddhj.mapper.SpecificationMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 下单过程中关闭热点规格的内存库存
+ */
+class HotInventoryServiceTest extends IntegrationTest {
+
+    private static final int THREADS = 8;
+
+    private static final int ORDERS = 25;
+
+    @Resource
+    private HotInventoryService hotInventoryService;
+
+    @Resource
+    private OrderService orderService;
+
+    @Resource
+    private SpecificationMapper specificationMapper;
+
+    @Resource
+    private OrderItemMapper orderItemMapper;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void disableWaitsForInFlightReservations() throws Exception {
+        Long specId = insertSpec(100);
+        assertThat(hotInventoryService.enable(specId)).isTrue();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch reserved = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Future<?> inFlight = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            orderService.createOrder(order(specId, 2, LocalDateTime.of(2003, 1, 1, 10, 0)));
+            reserved.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        reserved.await();
+        Future<?> disabling = executor.submit(() -> hotInventoryService.disable(specId));
+        while (hotInventoryService.isHot(specId)) {
+            Thread.sleep(1);
+        }
+
+        // 关闭过程中的新订单直接扣减规格表，同时从计数器中扣除
+        orderService.createOrder(order(specId, 3, LocalDateTime.of(2003, 1, 2, 10, 0)));
+        assertThat(hotInventoryService.getAvailable(specId)).isEqualTo(95);
+        assertThat(disabling.isDone()).isFalse();
+
+        commit.countDown();
+        inFlight.get(10, TimeUnit.SECONDS);
+        disabling.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(hotInventoryService.getAvailable(specId)).isNull();
+        assertThat(orderItemMapper.sumStockDeferredBySpecId(specId)).isZero();
+        assertThat(specificationMapper.selectStockById(specId).getStock()).isEqualTo(95);
+    }
+
+    @Test
+    void disableWhileOrderingKeepsEveryOrder() throws Exception {
+        Long specId = insertSpec(1000);
+        assertThat(hotInventoryService.enable(specId)).isTrue();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < ORDERS; j++) {
+                    try {
+                        orderService.createOrder(order(specId, 1, LocalDateTime.now()));
+                        created.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        // 约四分之一的订单走内存预留后关闭，其余订单在关闭过程中和关闭后直接扣减
+        while (created.get() < THREADS * ORDERS / 4) {
+            Thread.sleep(1);
+        }
+        hotInventoryService.disable(specId);
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(failures.get()).isZero();
+        assertThat(hotInventoryService.getAvailable(specId)).isNull();
+        assertThat(orderItemMapper.sumStockDeferredBySpecId(specId)).isZero();
+        assertThat(specificationMapper.selectStockById(specId).getStock()).isEqualTo(1000 - THREADS * ORDERS);
+    }
+
+    private Long insertSpec(int stock) {
+        Specification specification = new Specification();
+        specification.setProductId(1L);
+        specification.setName("热点库存测试");
+        specification.setSpecs(Map.of());
+        specification.setStock(stock);
+        specificationMapper.insert(specification);
+        return specification.getId();
+    }
+
+    private Order order(Long specId, int quantity, LocalDateTime orderDate) {
+        OrderLine line = new OrderLine();
+        line.setSpecId(specId);
+        line.setQuantity(quantity);
+        OrderItems items = new OrderItems();
+        items.lines(1L).add(line);
+
+        Order order = new Order();
+        order.setOrderDate(orderDate);
+        order.setItems(items);
+        order.setTotalAmount(10.0);
+        order.setPaidAmount(10.0);
+        return order;
+    }
+}
@@ -0,0 +1,146 @@
+package com.ddhj.service;
+
+import com.ddhj.IntegrationTest;
+import com.ddhj.dto.HotProduct;
+import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItems;
+import com.ddhj.entity.OrderLine;
+import com.ddhj.entity.Product;
+import com.ddhj.entity.ProductSalesDaily;
+import com.ddhj.entity.Specification;
+import com.ddhj.mapper.ProductMapper;
+import com.ddhj.mapper.ProductSalesDailyMapper;
+import com.ddhj.mapper.SpecificationMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 商品日销量在下单事务中累加：提交即可查到，回滚不计入，重建与未提交的订单互斥
+ */
+class LeaderboardServiceTest extends IntegrationTest {
+
+    @Resource
+    private LeaderboardService leaderboardService;
+
+    @Resource
+    private OrderService orderService;
+
+    @Resource
+    private ProductMapper productMapper;
+
+    @Resource
+    private SpecificationMapper specificationMapper;
+
+    @Resource
+    private ProductSalesDailyMapper productSalesDailyMapper;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void salesFollowCommittedOrders() {
+        LocalDate date = LocalDate.of(2002, 3, 1);
+        Product product = insertProduct();
+        Long specId = insertSpec(product.getId());
+
+        Order order = order(product.getId(), specId, 2, date);
+        orderService.createOrder(order);
+        List<HotProduct> top = leaderboardService.getTop(date, date, 10);
+        assertThat(top).extracting(HotProduct::getProductId, HotProduct::getSales)
+                .containsExactly(tuple(product.getId(), 2));
+        assertThat(top.get(0).getProductName()).isEqualTo(product.getName());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            orderService.createOrder(order(product.getId(), specId, 5, date));
+            status.setRollbackOnly();
+        });
+        assertThat(sales(date, product.getId())).isEqualTo(2);
+
+        orderService.deleteOrder(order.getId());
+        assertThat(sales(date, product.getId())).isZero();
+        assertThat(leaderboardService.getTop(date, date, 10)).isEmpty();
+    }
+
+    @Test
+    void rebuildWaitsForUncommittedOrder() throws Exception {
+        LocalDate date = LocalDate.of(2002, 4, 1);
+        Product product = insertProduct();
+        Long specId = insertSpec(product.getId());
+        orderService.createOrder(order(product.getId(), specId, 1, date));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Future<?> inFlight = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            orderService.createOrder(order(product.getId(), specId, 2, date));
+            recorded.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        recorded.await();
+        Future<?> rebuilding = executor.submit(() -> leaderboardService.rebuild(date, date));
+        Thread.sleep(500);
+        assertThat(rebuilding.isDone()).isFalse();
+
+        commit.countDown();
+        inFlight.get(10, TimeUnit.SECONDS);
+        rebuilding.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(sales(date, product.getId())).isEqualTo(3);
+        assertThat(leaderboardService.getTop(date, date, 10)).extracting(HotProduct::getSales).containsExactly(3);
+    }
+
+    private int sales(LocalDate date, Long productId) {
+        return productSalesDailyMapper.selectRange(date, date.plusDays(1)).stream()
+                .filter(row -> row.getProductId().equals(productId))
+                .mapToInt(ProductSalesDaily::getSales)
+                .sum();
+    }
+
+    private Product insertProduct() {
+        Product product = new Product();
+        product.setName("榜单测试");
+        product.setSellPrice(10.0);
+        product.setCategoryId(1L);
+        productMapper.insert(product);
+        return product;
+    }
+
+    private Long insertSpec(Long productId) {
+        Specification specification = new Specification();
+        specification.setProductId(productId);
+        specification.setName("榜单测试");
+        specification.setSpecs(Map.of());
+        specification.setStock(100);
+        specificationMapper.insert(specification);
+        return specification.getId();
+    }
+
+    private Order order(Long productId, Long specId, int quantity, LocalDate date) {
+        OrderLine line = new OrderLine();
+        line.setSpecId(specId);
+        line.setQuantity(quantity);
+        OrderItems items = new OrderItems();
+        items.lines(productId).add(line);
+
+        Order order = new Order();
+        order.setOrderDate(date.atTime(10, 0));
+        order.setItems(items);
+        order.setTotalAmount(10.0);
+        order.setPaidAmount(10.0);
+        return order;
+    }
+}
@@ -0,0 +1,136 @@
+package com.ddhj.service;
+
+import com.ddhj.IntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.annotation.Resource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 订单流式导出：大数据量导出时内存占用不随行数增长，空值输出为空字段
+ * <p>
+ * 使用单独的文件 H2 库：内存库读出的是库中缓存的同一批字符串，无法反映导出过程的内存占用；
+ * LAZY_QUERY_EXECUTION 使 H2 像 MySQL 游标读取一样逐批返回结果，而不是先物化整个结果集。
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderExportServiceTest {
+
+    private static final String URL = "jdbc:h2:file:./target/h2/order_export_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;LAZY_QUERY_EXECUTION=TRUE";
+
+    private static final LocalDateTime START = LocalDateTime.of(2001, 1, 1, 0, 0);
+
+    private static final LocalDateTime END = LocalDateTime.of(2001, 12, 31, 23, 59, 59);
+
+    private static final int ROWS = 100_000;
+
+    private static final int ITEMS_LENGTH = 1000;
+
+    @Resource
+    private OrderExportService orderExportService;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        Files.deleteIfExists(Path.of("target/h2/order_export_test.mv.db"));
+        IntegrationTest.createSchema(URL);
+        registry.add("spring.datasource.url", () -> URL);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM orders WHERE order_date BETWEEN ? AND ?", START, END);
+    }
+
+    @Test
+    void largeExportKeepsMemoryFlat() throws Exception {
+        jdbcTemplate.update("INSERT INTO orders (order_number, items, total_amount, paid_amount, notes, order_date) "
+                + "SELECT 'EXPORT' || X, '{\"1\":[{\"specId\":1,\"quantity\":1,\"name\":\"' || LPAD(X, " + ITEMS_LENGTH
+                + ", 'x') || '\"}]}', 20, 20, NULL, DATEADD(SECOND, X, TIMESTAMP '2001-01-01 00:00:00') FROM SYSTEM_RANGE(1, " + ROWS + ")");
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        HeapSamplingStream out = new HeapSamplingStream(memory, 8 * 1024 * 1024);
+
+        long count = orderExportService.export(START, END, "csv", out);
+
+        assertThat(count).isEqualTo(ROWS);
+        // 全部结果缓存在内存中时至少需要导出数据量大小的堆，逐行写出时增长应远小于此
+        assertThat(out.written).isGreaterThan((long) ROWS * ITEMS_LENGTH);
+        assertThat(out.maxUsed - baseline).isLessThan(32L * 1024 * 1024);
+    }
+
+    @Test
+    void csvWritesEmptyFieldForNull() throws Exception {
+        jdbcTemplate.update("INSERT INTO orders (order_number, items, total_amount, paid_amount, notes, order_date) "
+                + "VALUES ('EXPORT-NULL', '{}', 10.5, 8, NULL, ?)", START);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderExportService.export(START, END, "csv", out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[1]).endsWith(",EXPORT-NULL,2001-01-01 00:00:00,10.5,8.0,,{}");
+    }
+
+    /**
+     * 只统计写出的字节数，每写出 sampleBytes 字节在 GC 后记录一次已用堆内存
+     */
+    private static class HeapSamplingStream extends OutputStream {
+
+        private final MemoryMXBean memory;
+
+        private final long sampleBytes;
+
+        private long written;
+
+        private long nextSample;
+
+        private long maxUsed;
+
+        HeapSamplingStream(MemoryMXBean memory, long sampleBytes) {
+            this.memory = memory;
+            this.sampleBytes = sampleBytes;
+            this.nextSample = sampleBytes;
+        }
+
+        @Override
+        public void write(int b) {
+            count(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count(len);
+        }
+
+        private void count(int len) {
+            written += len;
+            if (written >= nextSample) {
+                nextSample += sampleBytes;
+                System.gc();
+                maxUsed = Math.max(maxUsed, memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.ddhj.service;
+
+import com.ddhj.IntegrationTest;
+import com.ddhj.dto.BatchOrderResult;
+import com.ddhj.entity.Order;
+import com.ddhj.entity.OrderItems;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 订单表按下单日期分区后，订单号仍全局唯一：不同下单时间、已归档的订单号都不能再次使用
+ */
+class OrderNumberUniquenessTest extends IntegrationTest {
+
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.of(2004, 1, 1, 10, 0);
+
+    @Resource
+    private OrderService orderService;
+
+    @Resource
+    private OrderBatchService orderBatchService;
+
+    @Resource
+    private OrderArchiveService orderArchiveService;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void sameNumberWithAnotherOrderDateIsRejected() {
+        orderService.createOrder(order("UNIQUE-DATE", ORDER_DATE));
+
+        assertThatThrownBy(() -> orderService.createOrder(order("UNIQUE-DATE", ORDER_DATE.plusMonths(1))))
+                .isInstanceOf(DuplicateKeyException.class);
+        List<BatchOrderResult> results = orderBatchService.ingest(List.of(order("UNIQUE-DATE", ORDER_DATE.plusDays(1))));
+
+        assertThat(results).extracting(BatchOrderResult::getStatus).containsExactly(BatchOrderResult.DUPLICATE);
+        assertThat(countOrders("UNIQUE-DATE")).isEqualTo(1);
+        assertThat(orderService.getOrderByNumber("UNIQUE-DATE").getOrderDate()).isEqualTo(ORDER_DATE);
+    }
+
+    @Test
+    void archivedNumberIsRejected() {
+        orderService.createOrder(order("UNIQUE-ARCHIVED", ORDER_DATE));
+        orderArchiveService.archive();
+        assertThat(countOrders("UNIQUE-ARCHIVED")).isZero();
+
+        assertThatThrownBy(() -> orderService.createOrder(order("UNIQUE-ARCHIVED", LocalDateTime.now())))
+                .isInstanceOf(DuplicateKeyException.class);
+
+        assertThat(countOrders("UNIQUE-ARCHIVED")).isZero();
+        assertThat(orderService.getOrderByNumber("UNIQUE-ARCHIVED").getOrderDate()).isEqualTo(ORDER_DATE);
+    }
+
+    private Order order(String orderNumber, LocalDateTime orderDate) {
+        Order order = new Order();
+        order.setOrderNumber(orderNumber);
+        order.setOrderDate(orderDate);
+        order.setItems(new OrderItems());
+        order.setTotalAmount(10.0);
+        order.setPaidAmount(10.0);
+        return order;
+    }
+
+    private long countOrders(String orderNumber) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE order_number = ?", Long.class, orderNumber);
+    }
+}
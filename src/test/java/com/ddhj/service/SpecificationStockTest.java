@@ -0,0 +1,109 @@
+package com.ddhj.service;
+
+import com.ddhj.IntegrationTest;
+import com.ddhj.entity.Specification;
+import com.ddhj.mapper.SpecificationMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 多线程并发扣减同一规格的库存
+ */
+class SpecificationStockTest extends IntegrationTest {
+
+    private static final int THREADS = 16;
+
+    private static final int ATTEMPTS = 40;
+
+    @Resource
+    private SpecificationService specificationService;
+
+    @Resource
+    private SpecificationMapper specificationMapper;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void concurrentSingleSpecDeductionNeverOversells() throws Exception {
+        Long specId = insertSpec(100);
+
+        int successes = hammer(() -> specificationService.deductStock(specId, 3));
+
+        int stock = specificationMapper.selectById(specId).getStock();
+        assertThat(stock).isGreaterThanOrEqualTo(0);
+        assertThat(successes * 3).isEqualTo(100 - stock);
+        assertThat(successes).isEqualTo(33);
+    }
+
+    @Test
+    void concurrentMultiSpecDeductionNeverOversells() throws Exception {
+        Long hotSpecId = insertSpec(100);
+        Long otherSpecId = insertSpec(1000);
+
+        // 整单扣减：任一规格不足时回滚，两个规格要么都扣要么都不扣；与下单一致传入 TreeMap
+        int successes = hammer(() -> Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            boolean deducted = specificationService.deductStock(new TreeMap<>(Map.of(otherSpecId, 1, hotSpecId, 3)));
+            if (!deducted) {
+                status.setRollbackOnly();
+            }
+            return deducted;
+        })));
+
+        int hotStock = specificationMapper.selectById(hotSpecId).getStock();
+        int otherStock = specificationMapper.selectById(otherSpecId).getStock();
+        assertThat(hotStock).isGreaterThanOrEqualTo(0);
+        assertThat(successes * 3).isEqualTo(100 - hotStock);
+        assertThat(successes).isEqualTo(1000 - otherStock);
+        assertThat(successes).isEqualTo(33);
+    }
+
+    private Long insertSpec(int stock) {
+        Specification specification = new Specification();
+        specification.setProductId(1L);
+        specification.setName("库存测试");
+        specification.setSpecs(Map.of());
+        specification.setStock(stock);
+        specificationMapper.insert(specification);
+        return specification.getId();
+    }
+
+    /**
+     * THREADS 个线程同时开始，各尝试 ATTEMPTS 次
+     *
+     * @return 成功次数
+     */
+    private int hammer(Callable<Boolean> deduction) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < ATTEMPTS; j++) {
+                    if (deduction.call()) {
+                        successes.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        return successes.get();
+    }
+}